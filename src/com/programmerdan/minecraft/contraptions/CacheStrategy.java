@@ -0,0 +1,7 @@
+package com.programmerdan.minecraft.contraptions;
+
+public enum CacheStrategy {
+	least_accessed,
+	oldest,
+	smallest
+}
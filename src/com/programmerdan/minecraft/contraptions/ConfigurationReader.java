@@ -1,16 +1,16 @@
 package com.programmerdan.minecraft.contraptions;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.UUID;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
 
 import org.bukkit.Material;
-import org.bukkit.entity.EntityType;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 
+import com.programmerdan.minecraft.contraptions.rate.FixedPoint;
+import com.programmerdan.minecraft.contraptions.rate.Recipe;
+
 public class ConfigurationReader {
 	public static boolean readConfig() {
 
@@ -23,9 +23,129 @@ public class ConfigurationReader {
 			ContraptionsConfiguration config = new ContraptionsConfiguration();
 
 			config.setDebug( conf.getBoolean("debug", false ) );
+			
+			readMonitor(conf.getConfigurationSection("monitor"), config.getMonitors());
+			readDao(conf.getConfigurationSection("dao"), config.getDao());
+			readRecipes(conf.getConfigurationSection("recipes"), config);
 		
+			// Only swapped in once fully read; readers never see a half-built config.
+			Contraptions.reconfigure(config);
 			return true;
 		}
 		return false;
 	}
+	
+	private static void readMonitor(ConfigurationSection section, ContraptionsConfiguration.MonitorBase monitors) {
+		if (section == null) {
+			return;
+		}
+		monitors.setCount( Math.max(1, section.getInt("count", monitors.getCount() ) ) );
+		monitors.setStrategy( readEnum(MonitorStrategy.class, section.getString("strategy"), monitors.getStrategy() ) );
+		monitors.setUpdateFrequency( Math.max(1L, section.getLong("update_frequency", monitors.getUpdateFrequency() ) ) );
+		monitors.setRunUnloaded( section.getBoolean("run_unloaded", monitors.isRunUnloaded() ) );
+		monitors.setRollingUpdates( section.getBoolean("rolling_updates", monitors.isRollingUpdates() ) );
+		monitors.setParallelism( Math.max(0, section.getInt("parallelism", monitors.getParallelism() ) ) );
+		monitors.setParallelThreshold( section.getInt("parallel_threshold", monitors.getParallelThreshold() ) );
+		monitors.setScheduledUpdates( section.getBoolean("scheduled_updates", monitors.isScheduledUpdates() ) );
+		monitors.setMaxIdle( Math.max(monitors.getUpdateFrequency(), section.getLong("max_idle", monitors.getMaxIdle() ) ) );
+		monitors.setFootprintInterval( section.getLong("footprint_interval", monitors.getFootprintInterval() ) );
+		monitors.setMaxContraptionFootprint( section.getLong("max_contraption_footprint", monitors.getMaxContraptionFootprint() ) );
+		monitors.setMaxPlayerFootprint( section.getLong("max_player_footprint", monitors.getMaxPlayerFootprint() ) );
+		monitors.setOverCapMode( readEnum(UpdateMode.class, section.getString("over_cap_mode"), monitors.getOverCapMode() ) );
+		monitors.setCoarseFactor( Math.max(1, section.getInt("coarse_factor", monitors.getCoarseFactor() ) ) );
+		monitors.setFixedPointBits( Math.max(FixedPoint.OFF, Math.min(FixedPoint.MAX_BITS, section.getInt("fixed_point_bits", monitors.getFixedPointBits() ) ) ) );
+	}
+	
+	private static void readDao(ConfigurationSection section, ContraptionsConfiguration.DaoConfig dao) {
+		if (section == null) {
+			return;
+		}
+		
+		ConfigurationSection database = section.getConfigurationSection("database");
+		if (database != null) {
+			ContraptionsConfiguration.DatabaseConfig db = dao.getDatabase();
+			db.setDriver( database.getString("driver", db.getDriver() ) );
+			db.setHost( database.getString("host") );
+			db.setPort( database.getInt("port", db.getPort() ) );
+			db.setUsername( database.getString("username") );
+			db.setPassword( database.getString("password") );
+			db.setDatabase( database.getString("database") );
+			db.setSchema( database.getString("schema") );
+		}
+		
+		ConfigurationSection file = section.getConfigurationSection("file");
+		if (file != null) {
+			ContraptionsConfiguration.FileConfig fc = dao.getFile();
+			fc.setBase( file.getString("base", fc.getBase() ) );
+			fc.setMaxFileSize( file.getLong("max_file_size", fc.getMaxFileSize() ) );
+			fc.setMaxIoRate( file.getLong("max_io_rate", fc.getMaxIoRate() ) );
+			fc.setIoChunkSize( file.getInt("io_chunk_size", fc.getIoChunkSize() ) );
+			fc.setCheckpointInterval( file.getLong("checkpoint_interval", fc.getCheckpointInterval() ) );
+			fc.setCheckpointBaseEvery( file.getInt("checkpoint_base_every", fc.getCheckpointBaseEvery() ) );
+		}
+		
+		ConfigurationSection cache = section.getConfigurationSection("cache");
+		if (cache != null) {
+			ContraptionsConfiguration.CacheConfig cc = dao.getCache();
+			cc.setGadgets( Math.max(0, cache.getInt("gadgets", cc.getGadgets() ) ) );
+			cc.setStates( Math.max(0, cache.getInt("states", cc.getStates() ) ) );
+			cc.setReinforcements( cache.getInt("reinforcements", cc.getReinforcements() ) );
+			cc.setStrategy( readEnum(CacheStrategy.class, cache.getString("strategy"), cc.getStrategy() ) );
+		}
+	}
+	
+	/**
+	 * Compiles every recipe under <code>section</code> into <code>config</code>, skipping
+	 * any that don't compile. Also used headlessly, e.g. by the load generator.
+	 */
+	public static void readRecipes(ConfigurationSection section, ContraptionsConfiguration config) {
+		if (section == null) {
+			return;
+		}
+		for (String name : section.getKeys(false)) {
+			ConfigurationSection recipe = section.getConfigurationSection(name);
+			if (recipe == null) {
+				continue;
+			}
+			try {
+				config.addRecipe( Recipe.compile(name, recipe.getDouble("time", 20.0d), recipe.getDouble("power", 0.0d),
+						readAmounts(recipe.getConfigurationSection("inputs")),
+						readAmounts(recipe.getConfigurationSection("outputs")) ) );
+			} catch (IllegalArgumentException e) {
+				logger().warning("Skipping recipe " + name + ": " + e.getMessage());
+			}
+		}
+	}
+	
+	private static Map<Material, Double> readAmounts(ConfigurationSection section) {
+		Map<Material, Double> amounts = new LinkedHashMap<Material, Double>();
+		if (section == null) {
+			return amounts;
+		}
+		for (String key : section.getKeys(false)) {
+			Material material = Material.matchMaterial(key);
+			if (material == null) {
+				throw new IllegalArgumentException("unknown material " + key);
+			}
+			amounts.put(material, section.getDouble(key));
+		}
+		return amounts;
+	}
+	
+	private static <T extends Enum<T>> T readEnum(Class<T> type, String value, T fallback) {
+		if (value == null) {
+			return fallback;
+		}
+		try {
+			return Enum.valueOf(type, value.trim().toLowerCase());
+		} catch (IllegalArgumentException e) {
+			logger().warning("Unknown " + type.getSimpleName() + " " + value + ", using " + fallback);
+			return fallback;
+		}
+	}
+	
+	private static Logger logger() {
+		Logger logger = Contraptions.logger();
+		return logger != null ? logger : Logger.getLogger(ConfigurationReader.class.getName());
+	}
 }
@@ -1,7 +1,14 @@
 package com.programmerdan.minecraft.contraptions;
 
+import com.programmerdan.minecraft.contraptions.checkpoint.Checkpointer;
+import com.programmerdan.minecraft.contraptions.citadel.ReinforcementGroupCache;
+import com.programmerdan.minecraft.contraptions.citadel.ReinforcementListener;
 import com.programmerdan.minecraft.contraptions.commands.CommandHandler;
+import com.programmerdan.minecraft.contraptions.engine.InventoryTracker;
+import com.programmerdan.minecraft.contraptions.engine.MonitorPool;
+import com.programmerdan.minecraft.contraptions.engine.PipeListener;
 
+import java.io.File;
 import java.util.logging.Logger;
 
 import org.bukkit.plugin.java.JavaPlugin;
@@ -17,7 +24,11 @@ public class Contraptions extends JavaPlugin {
 	private static CommandHandler commandHandler;
 	private static Logger logger;
 	private static JavaPlugin plugin;
-	private static ContraptionsConfiguration config;
+	private static volatile ContraptionsConfiguration config;
+	private static ReinforcementGroupCache groupCache;
+	private static MonitorPool monitorPool;
+	private static Checkpointer checkpointer;
+	private static InventoryTracker inventoryTracker;
 
 	public static CommandHandler commandHandler() {
 		return Contraptions.commandHandler;
@@ -39,23 +50,107 @@ public class Contraptions extends JavaPlugin {
 		return Contraptions.config;
 	}
 
+	public static ReinforcementGroupCache groupCache() {
+		return Contraptions.groupCache;
+	}
+
+	public static MonitorPool monitorPool() {
+		return Contraptions.monitorPool;
+	}
+
+	public static Checkpointer checkpointer() {
+		return Contraptions.checkpointer;
+	}
+
+	public static InventoryTracker inventoryTracker() {
+		return Contraptions.inventoryTracker;
+	}
+
+	/**
+	 * Swaps in a freshly read configuration, and applies it to anything already running:
+	 * the reinforcement cache is resized and the monitor pool re-partitioned in place.
+	 * Anything else reads {@link #config()} as it needs it, and so picks up the new
+	 * settings, cache capacities included, from its next use.
+	 * 
+	 * @param newConfig the configuration to make current
+	 */
+	static synchronized void reconfigure(ContraptionsConfiguration newConfig) {
+		Contraptions.config = newConfig;
+		if (Contraptions.groupCache != null) {
+			Contraptions.groupCache.setCapacity(newConfig.getDao().getCache().getReinforcements());
+		}
+		if (Contraptions.monitorPool != null) {
+			Contraptions.monitorPool.reconfigure(newConfig.getMonitors());
+		}
+	}
+
 	@Override
 	public void onEnable() {
 		// setting a couple of static fields so that they are available elsewhere
 		Contraptions.logger = getLogger();
 		Contraptions.plugin = this;
 		Contraptions.commandHandler = new CommandHandler(this);
+		Contraptions.groupCache = new ReinforcementGroupCache();
+
+		if (!ConfigurationReader.readConfig()) {
+			logger.severe("Configuration version mismatch, Contraptions will not start");
+			getServer().getPluginManager().disablePlugin(this);
+			return;
+		}
+
+		getServer().getPluginManager().registerEvents(
+				new ReinforcementListener(Contraptions.groupCache), this);
+		getServer().getPluginManager().registerEvents(Contraptions.commandHandler.getPages(), this);
+
+		Contraptions.monitorPool = new MonitorPool(config.getMonitors(), logger);
+		getServer().getPluginManager().registerEvents(Contraptions.monitorPool.getChunks(), this);
+		Contraptions.monitorPool.getChunks().seed();
+		getServer().getPluginManager().registerEvents(new PipeListener(this, Contraptions.monitorPool), this);
+		Contraptions.inventoryTracker = new InventoryTracker(this, Contraptions.monitorPool, logger);
+		getServer().getPluginManager().registerEvents(Contraptions.inventoryTracker, this);
+
+		long interval = config.getDao().getFile().getCheckpointInterval();
+		if (interval > 0L) {
+			Contraptions.checkpointer = new Checkpointer(
+					new File(config.getDao().getFile().getBase(), "checkpoints"),
+					config.getDao().getFile().getCheckpointBaseEvery(), logger);
+			getServer().getScheduler().runTaskTimerAsynchronously(this, new Runnable() {
+				@Override
+				public void run() {
+					checkpoint();
+				}
+			}, interval, interval);
+		}
 
 		/* TODO:
-		 *   1. Load general Contraptions configuration
-		 *   2. Spin up Contraption monitor in startup mode
-		 *   3. Load Gadget specifications
-		 *   4. Load saved Contraptions (DB access necessary)
+		 *   1. Load Gadget specifications
+		 *   2. Load saved Contraptions (DB access necessary); Checkpointer.recover once
+		 *      live Gadgets have a GadgetFactory
 		 *       1. Load Gadget locations, types, status
 		 *       2. Load Contraption State (connections, activity status, state machine)
 		 *       3. Add Contraption to Contraption monitor
-		 *   5. Enter Contraption monitor active mode
+		 *   3. Enter Contraption monitor active mode
 		 */
 
 	}
+
+	@Override
+	public void onDisable() {
+		if (Contraptions.inventoryTracker != null) {
+			// finish reading in what players last changed, so the checkpoint has it.
+			Contraptions.inventoryTracker.shutdown();
+		}
+		if (Contraptions.monitorPool != null) {
+			Contraptions.monitorPool.shutdown();
+			// monitors are stopped; capture where they left off.
+			checkpoint();
+		}
+	}
+
+	private static void checkpoint() {
+		if (Contraptions.checkpointer != null && Contraptions.monitorPool != null) {
+			Contraptions.checkpointer.checkpoint(Contraptions.monitorPool.getContraptions(),
+					MonitorPool.currentTick());
+		}
+	}
 }
@@ -1,5 +1,12 @@
 package com.programmerdan.minecraft.contraptions;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.programmerdan.minecraft.contraptions.rate.FixedPoint;
+import com.programmerdan.minecraft.contraptions.rate.Recipe;
+
 public class ContraptionsConfiguration {
 	
 	public ContraptionsConfiguration() {
@@ -10,6 +17,7 @@ public class ContraptionsConfiguration {
 	
 	private MonitorBase monitors = new MonitorBase();
 	private DaoConfig dao = new DaoConfig();
+	private Map<String, Recipe> recipes = new LinkedHashMap<String, Recipe>();
 	
 	public static boolean check_version(final double version) {
 		return CONFIG_VERSION == version;
@@ -22,12 +30,42 @@ public class ContraptionsConfiguration {
 		return this.debug;
 	}
 	
-	class MonitorBase {
-		private int count;
-		private MonitorStrategy strategy;
-		private long updateFrequency;
-		private boolean runUnloaded;
-		private boolean rollingUpdates;
+	public MonitorBase getMonitors() {
+		return this.monitors;
+	}
+	public DaoConfig getDao() {
+		return this.dao;
+	}
+	
+	/**
+	 * @return every compiled recipe, by configured name.
+	 */
+	public Map<String, Recipe> getRecipes() {
+		return Collections.unmodifiableMap(this.recipes);
+	}
+	public Recipe getRecipe(String name) {
+		return this.recipes.get(name);
+	}
+	public void addRecipe(Recipe recipe) {
+		this.recipes.put(recipe.getName(), recipe);
+	}
+	
+	public class MonitorBase {
+		private int count = 4;
+		private MonitorStrategy strategy = MonitorStrategy.round_robin;
+		private long updateFrequency = 10;
+		private boolean runUnloaded = true;
+		private boolean rollingUpdates = false;
+		private int parallelism = 0;
+		private int parallelThreshold = 2000;
+		private boolean scheduledUpdates = true;
+		private long maxIdle = 1200;
+		private long footprintInterval = 1200;
+		private long maxContraptionFootprint = 16777216L;
+		private long maxPlayerFootprint = 67108864L;
+		private UpdateMode overCapMode = UpdateMode.coarse;
+		private int coarseFactor = 10;
+		private int fixedPointBits = FixedPoint.OFF;
 		
 		public int getCount() {
 			return count;
@@ -59,5 +97,236 @@ public class ContraptionsConfiguration {
 		public void setRollingUpdates(boolean rollingUpdates) {
 			this.rollingUpdates = rollingUpdates;
 		}
+		public int getParallelism() {
+			return parallelism;
+		}
+		public void setParallelism(int parallelism) {
+			this.parallelism = parallelism;
+		}
+		public int getParallelThreshold() {
+			return parallelThreshold;
+		}
+		public void setParallelThreshold(int parallelThreshold) {
+			this.parallelThreshold = parallelThreshold;
+		}
+		public boolean isScheduledUpdates() {
+			return scheduledUpdates;
+		}
+		public void setScheduledUpdates(boolean scheduledUpdates) {
+			this.scheduledUpdates = scheduledUpdates;
+		}
+		public long getMaxIdle() {
+			return maxIdle;
+		}
+		public void setMaxIdle(long maxIdle) {
+			this.maxIdle = maxIdle;
+		}
+		/**
+		 * @return ticks between footprint audits; 0 or less disables them.
+		 */
+		public long getFootprintInterval() {
+			return footprintInterval;
+		}
+		public void setFootprintInterval(long footprintInterval) {
+			this.footprintInterval = footprintInterval;
+		}
+		/**
+		 * @return estimated bytes a single Contraption may retain; 0 or less for no cap.
+		 */
+		public long getMaxContraptionFootprint() {
+			return maxContraptionFootprint;
+		}
+		public void setMaxContraptionFootprint(long maxContraptionFootprint) {
+			this.maxContraptionFootprint = maxContraptionFootprint;
+		}
+		/**
+		 * @return estimated bytes all of one player's Contraptions may retain; 0 or less for no cap.
+		 */
+		public long getMaxPlayerFootprint() {
+			return maxPlayerFootprint;
+		}
+		public void setMaxPlayerFootprint(long maxPlayerFootprint) {
+			this.maxPlayerFootprint = maxPlayerFootprint;
+		}
+		public UpdateMode getOverCapMode() {
+			return overCapMode;
+		}
+		public void setOverCapMode(UpdateMode overCapMode) {
+			this.overCapMode = overCapMode;
+		}
+		public int getCoarseFactor() {
+			return coarseFactor;
+		}
+		public void setCoarseFactor(int coarseFactor) {
+			this.coarseFactor = coarseFactor;
+		}
+		/**
+		 * @return binary places moved amounts are rounded to, 0 for whole items; or
+		 *     {@link FixedPoint#OFF} to leave them in floating point.
+		 */
+		public int getFixedPointBits() {
+			return fixedPointBits;
+		}
+		public void setFixedPointBits(int fixedPointBits) {
+			this.fixedPointBits = fixedPointBits;
+		}
+	}
+	
+	public class DaoConfig {
+		private DatabaseConfig database = new DatabaseConfig();
+		private FileConfig file = new FileConfig();
+		private CacheConfig cache = new CacheConfig();
+		
+		public DatabaseConfig getDatabase() {
+			return database;
+		}
+		public FileConfig getFile() {
+			return file;
+		}
+		public CacheConfig getCache() {
+			return cache;
+		}
+	}
+	
+	public class DatabaseConfig {
+		private String driver = "none";
+		private String host;
+		private int port;
+		private String username;
+		private String password;
+		private String database;
+		private String schema;
+		
+		public String getDriver() {
+			return driver;
+		}
+		public void setDriver(String driver) {
+			this.driver = driver;
+		}
+		public String getHost() {
+			return host;
+		}
+		public void setHost(String host) {
+			this.host = host;
+		}
+		public int getPort() {
+			return port;
+		}
+		public void setPort(int port) {
+			this.port = port;
+		}
+		public String getUsername() {
+			return username;
+		}
+		public void setUsername(String username) {
+			this.username = username;
+		}
+		public String getPassword() {
+			return password;
+		}
+		public void setPassword(String password) {
+			this.password = password;
+		}
+		public String getDatabase() {
+			return database;
+		}
+		public void setDatabase(String database) {
+			this.database = database;
+		}
+		public String getSchema() {
+			return schema;
+		}
+		public void setSchema(String schema) {
+			this.schema = schema;
+		}
+	}
+	
+	public class FileConfig {
+		private String base = "Contraptions/";
+		private long maxFileSize;
+		private long maxIoRate;
+		private int ioChunkSize;
+		private long checkpointInterval = 6000L;
+		private int checkpointBaseEvery = 12;
+		
+		public String getBase() {
+			return base;
+		}
+		public void setBase(String base) {
+			this.base = base;
+		}
+		public long getMaxFileSize() {
+			return maxFileSize;
+		}
+		public void setMaxFileSize(long maxFileSize) {
+			this.maxFileSize = maxFileSize;
+		}
+		public long getMaxIoRate() {
+			return maxIoRate;
+		}
+		public void setMaxIoRate(long maxIoRate) {
+			this.maxIoRate = maxIoRate;
+		}
+		public int getIoChunkSize() {
+			return ioChunkSize;
+		}
+		public void setIoChunkSize(int ioChunkSize) {
+			this.ioChunkSize = ioChunkSize;
+		}
+		/**
+		 * @return ticks between checkpoints; 0 or less disables checkpointing.
+		 */
+		public long getCheckpointInterval() {
+			return checkpointInterval;
+		}
+		public void setCheckpointInterval(long checkpointInterval) {
+			this.checkpointInterval = checkpointInterval;
+		}
+		/**
+		 * @return checkpoints per full base; the rest are deltas.
+		 */
+		public int getCheckpointBaseEvery() {
+			return checkpointBaseEvery;
+		}
+		public void setCheckpointBaseEvery(int checkpointBaseEvery) {
+			this.checkpointBaseEvery = checkpointBaseEvery;
+		}
+	}
+	
+	/**
+	 * Cache sizes. The reinforcement cache is resized in place on reload; the gadget and
+	 * state capacities and strategy are for the database DAO's caches, which take them
+	 * from the current configuration, so a reload reaches them too.
+	 */
+	public class CacheConfig {
+		private int gadgets = 100000;
+		private int states = 10000;
+		private int reinforcements = 100000;
+		private CacheStrategy strategy = CacheStrategy.least_accessed;
+		
+		public int getGadgets() {
+			return gadgets;
+		}
+		public void setGadgets(int gadgets) {
+			this.gadgets = gadgets;
+		}
+		public int getStates() {
+			return states;
+		}
+		public void setStates(int states) {
+			this.states = states;
+		}
+		public int getReinforcements() {
+			return reinforcements;
+		}
+		public void setReinforcements(int reinforcements) {
+			this.reinforcements = reinforcements;
+		}
+		public CacheStrategy getStrategy() {
+			return strategy;
+		}
+		public void setStrategy(CacheStrategy strategy) {
+			this.strategy = strategy;
+		}
 	}
 }
@@ -0,0 +1,24 @@
+package com.programmerdan.minecraft.contraptions;
+
+/**
+ * How closely the engine follows a Contraption. Contraptions over their heap footprint
+ * cap are forced out of <code>normal</code>.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public enum UpdateMode {
+	/**
+	 * Updated as often as the monitor settings allow.
+	 */
+	normal,
+	/**
+	 * Updated <code>coarse_factor</code> times less often, over correspondingly longer spans.
+	 */
+	coarse,
+	/**
+	 * As coarse, and cached links are dropped after every update, to be rebuilt on the
+	 * next.
+	 */
+	dehydrated
+}
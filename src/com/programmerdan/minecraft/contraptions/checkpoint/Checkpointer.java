@@ -0,0 +1,346 @@
+package com.programmerdan.minecraft.contraptions.checkpoint;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.gadget.Wear;
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+import com.programmerdan.minecraft.contraptions.graph.ContraptionGraph;
+import com.programmerdan.minecraft.contraptions.grid.GridMember;
+import com.programmerdan.minecraft.contraptions.grid.Resource;
+import com.programmerdan.minecraft.contraptions.trace.GadgetFactory;
+import com.programmerdan.minecraft.contraptions.trace.TraceReader;
+import com.programmerdan.minecraft.contraptions.trace.TraceVisitor;
+import com.programmerdan.minecraft.contraptions.trace.TraceWriter;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+
+/**
+ * Checkpoints Contraptions to a directory, in the {@link com.programmerdan.minecraft.contraptions.trace.TraceFormat trace format}.
+ * <br>
+ * Every <code>baseEvery</code> checkpoints, a base is written: the full graph and state
+ * of every Contraption. In between, a delta holds only what changed since the previous
+ * checkpoint: the graph of any Contraption whose graph changed, the storage, wear and
+ * grid charge of any {@link GadgetBase#isDirty() dirty} Gadget, and the removal of any
+ * Contraption gone since. Most Gadgets sit idle most of the time, so deltas stay small
+ * however many Contraptions are running; each Contraption adds only one small record,
+ * of its owner and repair state.
+ * <br>
+ * Grid charge is recorded as each member's share, as if the grid were dissolved, so
+ * grids are left as they are. Anything that changes a Gadget's {@link Wear} outside an
+ * update must mark the Gadget dirty for a delta to pick it up.
+ * <br>
+ * Files are numbered in sequence and written to a temporary name first, so a crash
+ * mid-write leaves the last good checkpoint in place. A new base replaces all files
+ * before it. If a delta can't be written, the next checkpoint is a base, as the changes
+ * it lost are no longer marked.
+ * <br>
+ * Each Contraption is locked only while its own records are written.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class Checkpointer {
+	private static final String PREFIX = "checkpoint-";
+	private static final String BASE = ".base";
+	private static final String DELTA = ".delta";
+
+	private final File directory;
+	private final int baseEvery;
+	private final Logger logger;
+	private long sequence;
+	private int sinceBase;
+	private boolean needBase = true;
+	private Set<Long> written = new HashSet<Long>();
+
+	/**
+	 * @param directory where to keep checkpoint files; created if missing
+	 * @param baseEvery checkpoints per base, counting the base
+	 * @param logger where to report failures
+	 */
+	public Checkpointer(File directory, int baseEvery, Logger logger) {
+		this.directory = directory;
+		this.baseEvery = Math.max(1, baseEvery);
+		this.logger = logger;
+		long[] found = sequences(directory, null);
+		this.sequence = found.length == 0 ? 0L : found[found.length - 1];
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Writes a checkpoint of <code>contraptions</code>: a base if one is due, else a delta.
+	 * 
+	 * @param contraptions every Contraption currently running
+	 * @param tick the engine tick this checkpoint is taken at
+	 * @return true if the checkpoint was written.
+	 */
+	public synchronized boolean checkpoint(Collection<Contraption> contraptions, long tick) {
+		boolean base = needBase || sinceBase + 1 >= baseEvery;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			logger.warning("Can't create checkpoint directory " + directory);
+			needBase = true;
+			return false;
+		}
+		long next = sequence + 1;
+		File target = file(next, base);
+		File temp = new File(directory, target.getName() + ".tmp");
+		Set<Long> ids = new HashSet<Long>();
+		try {
+			TraceWriter out = new TraceWriter(temp);
+			try {
+				out.tick(tick);
+				for (Contraption contraption : contraptions) {
+					ids.add(contraption.getId());
+					// one not in the last checkpoint needs its graph, dirty or not.
+					write(out, contraption, base || !written.contains(contraption.getId()));
+				}
+				if (!base) {
+					for (Long id : written) {
+						if (!ids.contains(id)) {
+							out.remove(id);
+						}
+					}
+				}
+			} finally {
+				out.close();
+			}
+			if (out.getFailure() != null) {
+				throw out.getFailure();
+			}
+			if (!temp.renameTo(target)) {
+				throw new IOException("Can't rename " + temp + " to " + target);
+			}
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Checkpoint " + target + " failed", e);
+			temp.delete();
+			needBase = true;
+			return false;
+		}
+		sequence = next;
+		written = ids;
+		if (base) {
+			needBase = false;
+			sinceBase = 0;
+			for (long old : sequences(directory, null)) {
+				if (old < next) {
+					file(old, true).delete();
+					file(old, false).delete();
+				}
+			}
+		} else {
+			sinceBase++;
+		}
+		return true;
+	}
+
+	private void write(TraceWriter out, Contraption contraption, boolean full) {
+		synchronized (contraption) {
+			ContraptionGraph graph = contraption.getGraph();
+			if (full || contraption.isGraphDirty()) {
+				out.contraption(contraption);
+			} else {
+				for (Map.Entry<Long, GadgetBase> entry : graph.getGadgets().entrySet()) {
+					if (entry.getValue().isDirty()) {
+						out.gadget(contraption, entry.getKey(), entry.getValue());
+					}
+				}
+				out.state(contraption);
+			}
+			contraption.clearGraphDirty();
+			for (GadgetBase gadget : graph.getGadgets().values()) {
+				gadget.clearDirty();
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds Contraptions from the latest base and every delta after it, in order. The
+	 * recovered Contraptions are marked clean, and each resumes from the tick its storage
+	 * was last brought up to, so flows between then and the checkpoint are not lost; those
+	 * from checkpoints too old to record it resume from the checkpoint's own tick. The next
+	 * checkpoint will be a base.
+	 * 
+	 * @param factory builds the Gadgets named in the checkpoints
+	 * @param now the current time in milliseconds, for Contraption repair state
+	 * @return the recovered Contraptions, by id; empty if there is no checkpoint.
+	 */
+	public synchronized Map<Long, Contraption> recover(GadgetFactory factory, long now) throws IOException {
+		Recovery recovery = new Recovery(factory, now);
+		long[] bases = sequences(directory, BASE);
+		if (bases.length == 0) {
+			return recovery.contraptions;
+		}
+		long base = bases[bases.length - 1];
+		List<File> files = new ArrayList<File>();
+		files.add(file(base, true));
+		for (long delta : sequences(directory, DELTA)) {
+			if (delta > base) {
+				files.add(file(delta, false));
+			}
+		}
+		for (File file : files) {
+			TraceReader reader = new TraceReader(file, factory);
+			try {
+				reader.readAll(recovery);
+			} finally {
+				reader.close();
+			}
+		}
+		for (Contraption contraption : recovery.contraptions.values()) {
+			contraption.clearGraphDirty();
+			for (GadgetBase gadget : contraption.getGraph().getGadgets().values()) {
+				gadget.clearDirty();
+			}
+			Long updated = recovery.updated.get(contraption.getId());
+			if (updated != null && updated >= 0L) {
+				contraption.setUpdatedTick(updated);
+			} else if (recovery.tick >= 0L) {
+				contraption.setUpdatedTick(recovery.tick);
+			}
+		}
+		written = new HashSet<Long>(recovery.contraptions.keySet());
+		needBase = true;
+		return recovery.contraptions;
+	}
+
+	private File file(long sequence, boolean base) {
+		return new File(directory, String.format("%s%012d%s", PREFIX, sequence, base ? BASE : DELTA));
+	}
+
+	/**
+	 * @return sequence numbers of the checkpoint files in <code>directory</code> with the
+	 *     given suffix, or with either if null; ascending.
+	 */
+	private static long[] sequences(File directory, final String suffix) {
+		File[] files = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith(PREFIX) && (suffix == null
+						? name.endsWith(BASE) || name.endsWith(DELTA) : name.endsWith(suffix));
+			}
+		});
+		if (files == null) {
+			return new long[0];
+		}
+		long[] found = new long[files.length];
+		int count = 0;
+		for (File file : files) {
+			String name = file.getName();
+			try {
+				found[count] = Long.parseLong(name.substring(PREFIX.length(), name.lastIndexOf('.')));
+				count++;
+			} catch (NumberFormatException e) {
+				// not one of ours.
+			}
+		}
+		found = Arrays.copyOf(found, count);
+		Arrays.sort(found);
+		return found;
+	}
+
+	/**
+	 * Applies checkpoint records to the Contraptions being recovered.
+	 */
+	private static class Recovery implements TraceVisitor {
+		private final GadgetFactory factory;
+		private final long now;
+		private final Map<Long, Contraption> contraptions = new LinkedHashMap<Long, Contraption>();
+		private final Map<Long, Long> updated = new HashMap<Long, Long>();
+		private long tick = -1L;
+
+		private Recovery(GadgetFactory factory, long now) {
+			this.factory = factory;
+			this.now = now;
+		}
+
+		@Override
+		public void tick(long tick) {
+			this.tick = tick;
+		}
+
+		@Override
+		public void graph(long id, ContraptionGraph graph) {
+			Contraption contraption = contraptions.get(id);
+			if (contraption == null) {
+				contraptions.put(id, new Contraption(id, graph, now));
+			} else {
+				contraption.setGraph(graph, now);
+			}
+		}
+
+		@Override
+		public void storage(long id, long key, List<AdvItemStack> stacks) {
+			GadgetBase gadget = gadget(id, key);
+			if (gadget != null) {
+				factory.restoreStorage(gadget, stacks);
+			}
+		}
+
+		@Override
+		public void breakPipe(long id, long block) {
+			Contraption contraption = contraptions.get(id);
+			if (contraption != null) {
+				contraption.breakPipe(block);
+			}
+		}
+
+		@Override
+		public void update(long id, double requested, double applied) {
+			// checkpoints hold state, not updates.
+		}
+
+		@Override
+		public void remove(long id) {
+			contraptions.remove(id);
+			updated.remove(id);
+		}
+
+		@Override
+		public void state(long id, UUID owner, double repairIndex, double repairRate, long repairSettled,
+				long updatedTick) {
+			Contraption contraption = contraptions.get(id);
+			if (contraption != null) {
+				contraption.setOwner(owner);
+				contraption.restoreRepair(repairIndex, repairRate, repairSettled);
+				updated.put(id, updatedTick);
+			}
+		}
+
+		@Override
+		public void wear(long id, long key, Wear wear) {
+			GadgetBase gadget = gadget(id, key);
+			if (gadget != null) {
+				gadget.setWear(wear);
+			}
+		}
+
+		@Override
+		public void charge(long id, long key, Resource resource, double stored) {
+			GadgetBase gadget = gadget(id, key);
+			if (gadget instanceof GridMember) {
+				((GridMember) gadget).setGridStored(resource, stored);
+			}
+		}
+
+		private GadgetBase gadget(long id, long key) {
+			Contraption contraption = contraptions.get(id);
+			return contraption == null ? null : contraption.getGraph().getGadget(key);
+		}
+	}
+}
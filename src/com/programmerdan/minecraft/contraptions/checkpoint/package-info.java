@@ -0,0 +1,8 @@
+/**
+ * Periodic checkpoints of running Contraptions to disk: an occasional full base, with
+ * small deltas of only what changed in between, and recovery from base plus deltas.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+package com.programmerdan.minecraft.contraptions.checkpoint;
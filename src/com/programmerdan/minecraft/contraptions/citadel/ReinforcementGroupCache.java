@@ -0,0 +1,182 @@
+package com.programmerdan.minecraft.contraptions.citadel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import vg.civcraft.mc.citadel.Citadel;
+import vg.civcraft.mc.citadel.reinforcement.PlayerReinforcement;
+import vg.civcraft.mc.citadel.reinforcement.Reinforcement;
+
+import com.programmerdan.minecraft.contraptions.util.LocationKey;
+import com.programmerdan.minecraft.contraptions.util.LongIntHashMap;
+
+/**
+ * Caches the Citadel group each block is reinforced to, keyed by packed block
+ * location (see {@link LocationKey}). Building or validating a contraption graph
+ * asks "are these two blocks in the same group?" for every edge, and Citadel's
+ * own lookup may go to its database; this keeps those checks to a primitive
+ * map probe once a block has been seen.
+ * 
+ * Entries are invalidated by {@link ReinforcementListener} as reinforcements are
+ * created, changed, or destroyed. A miss resolves against Citadel, so misses must
+ * be taken on the main thread; hits are safe from anywhere. Citadel is asked outside
+ * the cache's lock, and an answer is only kept if nothing was invalidated meanwhile.
+ * 
+ * When the cache grows past its capacity, it is simply emptied. Graph construction
+ * is bursty and local, so the working set refills quickly.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class ReinforcementGroupCache {
+	/**
+	 * Group ID recorded for blocks with no player reinforcement.
+	 */
+	public static final int UNREINFORCED = -1;
+	public static final int DEFAULT_CAPACITY = 100000;
+
+	private static final int MISSING = Integer.MIN_VALUE;
+
+	private final Map<UUID, LongIntHashMap> worlds = new HashMap<UUID, LongIntHashMap>();
+	private int capacity;
+	private int size;
+	private long generation;
+	private long hits;
+	private long misses;
+
+	public ReinforcementGroupCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public ReinforcementGroupCache(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Gets the NameLayer group ID the block at this location is reinforced to.
+	 * 
+	 * @param location the block location
+	 * @return the group ID, or {@link #UNREINFORCED}
+	 */
+	public int getGroupId(Location location) {
+		return getGroupId(location.getWorld(), LocationKey.of(location));
+	}
+
+	/**
+	 * Gets the NameLayer group ID the block at this packed location is reinforced to.
+	 * 
+	 * @param world the world the block is in
+	 * @param key the packed block location
+	 * @return the group ID, or {@link #UNREINFORCED}
+	 */
+	public int getGroupId(World world, long key) {
+		long seen;
+		synchronized (this) {
+			LongIntHashMap groups = worlds.get(world.getUID());
+			int group = groups == null ? MISSING : groups.get(key, MISSING);
+			if (group != MISSING) {
+				hits++;
+				return group;
+			}
+			misses++;
+			seen = generation;
+		}
+		// Citadel may go to its database; don't hold up cache hits from other threads meanwhile.
+		int group = lookup(world, key);
+		synchronized (this) {
+			if (generation != seen) {
+				// invalidated while we looked; what we found may already be stale.
+				return group;
+			}
+			if (size >= capacity) {
+				clear();
+			}
+			LongIntHashMap groups = worlds.get(world.getUID());
+			if (groups == null) {
+				groups = new LongIntHashMap();
+				worlds.put(world.getUID(), groups);
+			}
+			if (groups.get(key, MISSING) == MISSING) {
+				size++;
+			}
+			groups.put(key, group);
+		}
+		return group;
+	}
+
+	/**
+	 * Answers if two blocks may share an edge in a contraption graph; that is, if both
+	 * are reinforced to the same group, or neither is reinforced.
+	 * 
+	 * @param a one block location
+	 * @param b the other block location
+	 * @return true if both blocks are in the same group
+	 */
+	public boolean sameGroup(Location a, Location b) {
+		return getGroupId(a) == getGroupId(b);
+	}
+
+	/**
+	 * See {@link #sameGroup(Location, Location)}; both blocks must be in <code>world</code>.
+	 */
+	public boolean sameGroup(World world, long a, long b) {
+		return getGroupId(world, a) == getGroupId(world, b);
+	}
+
+	public synchronized void invalidate(Location location) {
+		LongIntHashMap groups = worlds.get(location.getWorld().getUID());
+		if (groups != null && groups.remove(LocationKey.of(location))) {
+			size--;
+		}
+		generation++;
+	}
+
+	/**
+	 * Drops every cached entry. Used when group identity changes wholesale, e.g. on a
+	 * NameLayer group merge or delete.
+	 */
+	public synchronized void clear() {
+		worlds.clear();
+		size = 0;
+		generation++;
+	}
+
+	public synchronized int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized void setCapacity(int capacity) {
+		this.capacity = capacity;
+		if (size > capacity) {
+			clear();
+		}
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	private int lookup(World world, long key) {
+		Reinforcement rein = Citadel.getReinforcementManager().getReinforcement(
+				world.getBlockAt(LocationKey.x(key), LocationKey.y(key), LocationKey.z(key)));
+		if (rein instanceof PlayerReinforcement) {
+			PlayerReinforcement prein = (PlayerReinforcement) rein;
+			if (prein.getGroup() != null) {
+				return prein.getGroup().getGroupId();
+			}
+		}
+		return UNREINFORCED;
+	}
+}
@@ -0,0 +1,73 @@
+package com.programmerdan.minecraft.contraptions.citadel;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+
+import vg.civcraft.mc.citadel.events.ReinforcementChangeTypeEvent;
+import vg.civcraft.mc.citadel.events.ReinforcementCreationEvent;
+import vg.civcraft.mc.citadel.events.ReinforcementDamageEvent;
+import vg.civcraft.mc.namelayer.events.GroupDeleteEvent;
+import vg.civcraft.mc.namelayer.events.GroupMergeEvent;
+
+import com.programmerdan.minecraft.contraptions.Contraptions;
+
+/**
+ * Keeps the {@link ReinforcementGroupCache} honest by invalidating entries whenever
+ * Citadel or NameLayer change what group a block belongs to.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class ReinforcementListener implements Listener {
+
+	private final ReinforcementGroupCache cache;
+
+	public ReinforcementListener(ReinforcementGroupCache cache) {
+		this.cache = cache;
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onReinforcementCreate(ReinforcementCreationEvent event) {
+		cache.invalidate(event.getBlock().getLocation());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onReinforcementChange(ReinforcementChangeTypeEvent event) {
+		cache.invalidate(event.getReinforcement().getLocation());
+	}
+
+	/**
+	 * Damage that destroys a reinforcement is only final once Citadel is done with
+	 * the event, so invalidate again on the next tick.
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onReinforcementDamage(ReinforcementDamageEvent event) {
+		final Location location = event.getBlock().getLocation();
+		cache.invalidate(location);
+		Bukkit.getScheduler().runTask(Contraptions.instance(), new Runnable() {
+			@Override
+			public void run() {
+				cache.invalidate(location);
+			}
+		});
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockBreak(BlockBreakEvent event) {
+		cache.invalidate(event.getBlock().getLocation());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onGroupDelete(GroupDeleteEvent event) {
+		cache.clear();
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onGroupMerge(GroupMergeEvent event) {
+		cache.clear();
+	}
+}
@@ -0,0 +1,8 @@
+/**
+ * Citadel and NameLayer integration: which blocks are reinforced to which group,
+ * and so which Gadgets and Pipes may share a Contraption.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+package com.programmerdan.minecraft.contraptions.citadel;
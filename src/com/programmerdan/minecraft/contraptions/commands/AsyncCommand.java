@@ -0,0 +1,94 @@
+package com.programmerdan.minecraft.contraptions.commands;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+
+import com.programmerdan.minecraft.contraptions.Contraptions;
+
+/**
+ * A command heavy enough to keep off the main thread, e.g. deep inspection of a large
+ * Contraption. Arguments are checked on the main thread by {@link #prepare(CommandSender, List)},
+ * which returns the work to do; that runs on a worker thread, and the lines it returns are
+ * paged back to the sender on the main thread, via {@link Pages}.
+ * <br>
+ * Work should take what it needs from each Contraption under that Contraption's lock,
+ * so it sees a consistent snapshot, and build its output after letting go. It must not
+ * touch the world or any other Bukkit state.
+ * <br>
+ * Each sender has at most one of these running at a time.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public abstract class AsyncCommand extends AbstractCommand {
+	private static final Set<String> running = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	public AsyncCommand(Contraptions instance, String commandName) {
+		super(instance, commandName);
+	}
+
+	/**
+	 * Checks the arguments and works out what to do, on the main thread.
+	 * 
+	 * @return the work to run on a worker thread, giving the lines to page back; or null if
+	 *     the arguments are wrong, to show usage.
+	 */
+	protected abstract Callable<List<String>> prepare(CommandSender sender, List<String> args);
+
+	/**
+	 * @return the heading for each page of results.
+	 */
+	protected abstract String getTitle(List<String> args);
+
+	@Override
+	public final boolean onCommand(final CommandSender sender, final List<String> args) {
+		final Callable<List<String>> work = prepare(sender, args);
+		if (work == null) {
+			return false;
+		}
+		final String key = sender.getName();
+		if (!running.add(key)) {
+			sender.sendMessage("Still working on your last request.");
+			return true;
+		}
+		final String title = getTitle(args);
+		try {
+			Bukkit.getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+				@Override
+				public void run() {
+					List<String> lines;
+					try {
+						lines = work.call();
+					} catch (Exception e) {
+						Contraptions.logger().log(Level.WARNING, "Command " + name + " " + args + " failed", e);
+						lines = Collections.singletonList("Failed: " + e);
+					}
+					final List<String> result = lines;
+					try {
+						Bukkit.getScheduler().runTask(plugin, new Runnable() {
+							@Override
+							public void run() {
+								running.remove(key);
+								Contraptions.commandHandler().getPages().show(sender, title, result);
+							}
+						});
+					} catch (RuntimeException e) {
+						// disabling; there's no main thread task to hand back to.
+						running.remove(key);
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			running.remove(key);
+			throw e;
+		}
+		return true;
+	}
+}
@@ -16,13 +16,19 @@ public class CommandHandler implements CommandExecutor {
 
 	HashMap<String, AbstractCommand> commands = new HashMap<String, AbstractCommand>();
 
+	private final Pages pages = new Pages();
+
 	public CommandHandler(Contraptions instance) {
 		plugin = instance;
 
 		plugin.getCommand("contraptions").setExecutor(this);
 
 		registerCommands(new AbstractCommand[] {
-					// TODO
+					new ReloadCommand(plugin),
+					new TraceCommand(plugin),
+					new FootprintCommand(plugin),
+					new InspectCommand(plugin),
+					new PageCommand(plugin)
 				});
 	}
 
@@ -39,6 +45,13 @@ public class CommandHandler implements CommandExecutor {
 		}
 	}
 
+	/**
+	 * @return the paged results of {@link AsyncCommand}s, per sender.
+	 */
+	public Pages getPages() {
+		return pages;
+	}
+
 	public boolean onCommand(CommandSender sender, Command cmd, String label,
 			String[] args) {
 
@@ -0,0 +1,93 @@
+package com.programmerdan.minecraft.contraptions.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import org.bukkit.command.CommandSender;
+
+import com.programmerdan.minecraft.contraptions.Contraptions;
+import com.programmerdan.minecraft.contraptions.UpdateMode;
+import com.programmerdan.minecraft.contraptions.engine.FootprintAudit;
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+import com.programmerdan.minecraft.contraptions.util.Footprint;
+
+/**
+ * Shows the estimated heap retained by Contraptions, as of the last footprint audit:
+ * the total, then the largest Contraptions and the players owning the most.
+ * 
+ * <code>/contraptions footprint [count]</code>, listing the top <code>count</code>, 10 by default.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class FootprintCommand extends AsyncCommand {
+
+	public FootprintCommand(Contraptions instance) {
+		super(instance, "footprint");
+	}
+
+	@Override
+	protected String getTitle(List<String> args) {
+		return "Contraption footprints";
+	}
+
+	@Override
+	protected Callable<List<String>> prepare(CommandSender sender, List<String> args) {
+		int top = 10;
+		if (!args.isEmpty()) {
+			try {
+				top = Math.max(1, Integer.parseInt(args.get(0)));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+		final int count = top;
+		final FootprintAudit audit = Contraptions.monitorPool().getFootprint();
+		return new Callable<List<String>>() {
+			@Override
+			public List<String> call() {
+				return report(audit, count);
+			}
+		};
+	}
+
+	private static List<String> report(FootprintAudit audit, int count) {
+		List<String> lines = new ArrayList<String>();
+		if (audit.getAuditedAt() == 0L) {
+			lines.add("No footprint audit yet; see footprint_interval.");
+			return lines;
+		}
+		List<Contraption> audited = audit.getAudited();
+		lines.add("~" + Footprint.format(audit.getTotal()) + " over " + audited.size() + " contraptions, "
+				+ audit.getOverCap() + " over cap, as of "
+				+ CommandHandler.readableTimeSpan((int) ((System.currentTimeMillis() - audit.getAuditedAt()) / 1000L))
+				+ "ago.");
+		for (Contraption contraption : audited.subList(0, Math.min(count, audited.size()))) {
+			int gadgets;
+			synchronized (contraption) {
+				gadgets = contraption.getGraph().getGadgets().size();
+			}
+			lines.add("#" + contraption.getId() + ": " + Footprint.format(contraption.getFootprint())
+					+ ", " + gadgets + " gadgets"
+					+ (contraption.getUpdateMode() == UpdateMode.normal ? "" : ", " + contraption.getUpdateMode())
+					+ (contraption.getOwner() == null ? "" : ", owner " + contraption.getOwner()));
+		}
+		final Map<UUID, Long> players = audit.getPlayers();
+		List<UUID> owners = new ArrayList<UUID>(players.keySet());
+		Collections.sort(owners, new Comparator<UUID>() {
+			@Override
+			public int compare(UUID a, UUID b) {
+				return players.get(b).compareTo(players.get(a));
+			}
+		});
+		for (UUID owner : owners.subList(0, Math.min(count, owners.size()))) {
+			lines.add(owner + ": " + Footprint.format(players.get(owner)));
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,168 @@
+package com.programmerdan.minecraft.contraptions.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import org.bukkit.Material;
+import org.bukkit.command.CommandSender;
+
+import com.programmerdan.minecraft.contraptions.Contraptions;
+import com.programmerdan.minecraft.contraptions.UpdateMode;
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+import com.programmerdan.minecraft.contraptions.graph.ContraptionGraph;
+import com.programmerdan.minecraft.contraptions.graph.GadgetLink;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+import com.programmerdan.minecraft.contraptions.util.Footprint;
+
+/**
+ * Deep inspection of one Contraption: a summary, or every Gadget, every Gadget's storage,
+ * or every link between Gadgets. Runs off the main thread; see {@link AsyncCommand}.
+ * 
+ * <code>/contraptions inspect &lt;id&gt; [gadgets|storage|links]</code>
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class InspectCommand extends AsyncCommand {
+
+	public InspectCommand(Contraptions instance) {
+		super(instance, "inspect");
+	}
+
+	@Override
+	protected String getTitle(List<String> args) {
+		return "Contraption #" + args.get(0) + (args.size() > 1 ? " " + args.get(1).toLowerCase() : "");
+	}
+
+	@Override
+	protected Callable<List<String>> prepare(CommandSender sender, List<String> args) {
+		if (args.isEmpty()) {
+			return null;
+		}
+		final long id;
+		try {
+			id = Long.parseLong(args.get(0));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		final String view = args.size() > 1 ? args.get(1).toLowerCase() : "summary";
+		if (!"summary".equals(view) && !"gadgets".equals(view) && !"storage".equals(view) && !"links".equals(view)) {
+			return null;
+		}
+		return new Callable<List<String>>() {
+			@Override
+			public List<String> call() {
+				Contraption contraption = Contraptions.monitorPool().getContraption(id);
+				List<String> lines = new ArrayList<String>();
+				if (contraption == null) {
+					lines.add("No contraption " + id + " is running.");
+					return lines;
+				}
+				Snapshot snapshot;
+				synchronized (contraption) {
+					snapshot = new Snapshot(contraption, "links".equals(view));
+				}
+				if ("gadgets".equals(view)) {
+					gadgets(snapshot, lines);
+				} else if ("storage".equals(view)) {
+					storage(snapshot, lines);
+				} else if ("links".equals(view)) {
+					links(snapshot, lines);
+				} else {
+					summary(snapshot, lines);
+				}
+				return lines;
+			}
+		};
+	}
+
+	private static void summary(Snapshot snapshot, List<String> lines) {
+		lines.add("Owner: " + (snapshot.owner == null ? "none" : snapshot.owner));
+		lines.add("Gadgets: " + snapshot.gadgets.size() + ", junctions: " + snapshot.junctions
+				+ ", edges: " + snapshot.edges);
+		lines.add("Updated to tick " + snapshot.updatedTick + ", " + snapshot.mode);
+		lines.add("Footprint: ~" + Footprint.format(snapshot.footprint) + " at last audit");
+	}
+
+	private static void gadgets(Snapshot snapshot, List<String> lines) {
+		for (Row row : snapshot.gadgets) {
+			lines.add(row.key + ": " + row.gadget.getClass().getSimpleName() + " " + row.type
+					+ (row.storage != null ? ", " + row.storage.size() + " kinds stored" : ""));
+		}
+	}
+
+	private static void storage(Snapshot snapshot, List<String> lines) {
+		for (Row row : snapshot.gadgets) {
+			if (row.storage == null) {
+				continue;
+			}
+			StringBuilder line = new StringBuilder().append(row.key).append(':');
+			for (AdvItemStack stack : row.storage) {
+				line.append(' ').append(stack.getType() == null ? "*" : stack.getType().getType())
+						.append(String.format(" x%.2f", stack.getSize()));
+			}
+			lines.add(line.toString());
+		}
+	}
+
+	private static void links(Snapshot snapshot, List<String> lines) {
+		Map<GadgetBase, Long> keys = new IdentityHashMap<GadgetBase, Long>();
+		for (Row row : snapshot.gadgets) {
+			keys.put(row.gadget, row.key);
+		}
+		for (GadgetLink link : snapshot.links) {
+			lines.add(keys.get(link.getA()) + " - " + keys.get(link.getB()) + ", capacity " + link.getCapacity());
+		}
+	}
+
+	/**
+	 * What a view needs of a Contraption, taken under its lock so it can be formatted after
+	 * letting go. Storage lists are the Gadgets' own snapshots, replaced rather than changed
+	 * by later updates.
+	 */
+	private static class Snapshot {
+		private final UUID owner;
+		private final int junctions;
+		private final int edges;
+		private final long updatedTick;
+		private final UpdateMode mode;
+		private final long footprint;
+		private final List<Row> gadgets;
+		private final List<GadgetLink> links;
+
+		private Snapshot(Contraption contraption, boolean withLinks) {
+			ContraptionGraph graph = contraption.getGraph();
+			this.owner = contraption.getOwner();
+			this.junctions = graph.getJunctions().size();
+			this.edges = graph.getEdges().size();
+			this.updatedTick = contraption.getUpdatedTick();
+			this.mode = contraption.getUpdateMode();
+			this.footprint = contraption.getFootprint();
+			this.gadgets = new ArrayList<Row>(graph.getGadgets().size());
+			for (Map.Entry<Long, GadgetBase> entry : graph.getGadgets().entrySet()) {
+				this.gadgets.add(new Row(entry.getKey(), entry.getValue()));
+			}
+			this.links = withLinks ? graph.getLinks() : Collections.<GadgetLink>emptyList();
+		}
+	}
+
+	private static class Row {
+		private final long key;
+		private final GadgetBase gadget;
+		private final Material type;
+		private final List<AdvItemStack> storage;
+
+		private Row(long key, GadgetBase gadget) {
+			this.key = key;
+			this.gadget = gadget;
+			this.type = gadget.getType();
+			this.storage = gadget.hasStorage() ? gadget.getStorage() : null;
+		}
+	}
+}
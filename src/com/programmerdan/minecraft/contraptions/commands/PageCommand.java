@@ -0,0 +1,38 @@
+package com.programmerdan.minecraft.contraptions.commands;
+
+import java.util.List;
+
+import org.bukkit.command.CommandSender;
+
+import com.programmerdan.minecraft.contraptions.Contraptions;
+
+/**
+ * Steps through the last paged result, from an {@link AsyncCommand}.
+ * 
+ * <code>/contraptions page &lt;n&gt;</code>
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class PageCommand extends AbstractCommand {
+
+	public PageCommand(Contraptions instance) {
+		super(instance, "page");
+	}
+
+	@Override
+	public boolean onCommand(CommandSender sender, List<String> args) {
+		int page = 1;
+		if (!args.isEmpty()) {
+			try {
+				page = Integer.parseInt(args.get(0));
+			} catch (NumberFormatException e) {
+				return false;
+			}
+		}
+		if (!Contraptions.commandHandler().getPages().show(sender, page)) {
+			sender.sendMessage("Nothing to page through.");
+		}
+		return true;
+	}
+}
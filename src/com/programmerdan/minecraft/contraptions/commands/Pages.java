@@ -0,0 +1,78 @@
+package com.programmerdan.minecraft.contraptions.commands;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * The last paged result shown to each command sender, so they can step through it with
+ * <code>/contraptions page &lt;n&gt;</code>. Only touched on the main thread. A player's
+ * result is dropped when they quit.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class Pages implements Listener {
+	/**
+	 * Lines per page; about what fits in chat without scrolling.
+	 */
+	public static final int PAGE_SIZE = 10;
+
+	private final Map<String, Result> results = new HashMap<String, Result>();
+
+	/**
+	 * Keeps <code>lines</code> as <code>sender</code>'s current result, and shows them the
+	 * first page.
+	 * 
+	 * @param title heads every page
+	 */
+	public void show(CommandSender sender, String title, List<String> lines) {
+		results.put(sender.getName(), new Result(title, lines));
+		show(sender, 1);
+	}
+
+	/**
+	 * Shows <code>sender</code> a page of their current result.
+	 * 
+	 * @param page from 1
+	 * @return false if they have no result to page through.
+	 */
+	public boolean show(CommandSender sender, int page) {
+		Result result = results.get(sender.getName());
+		if (result == null) {
+			return false;
+		}
+		int pages = Math.max(1, (result.lines.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+		page = Math.max(1, Math.min(page, pages));
+		sender.sendMessage(result.title + (pages > 1 ? " (page " + page + " of " + pages + ")" : ""));
+		int from = (page - 1) * PAGE_SIZE;
+		for (String line : result.lines.subList(from, Math.min(from + PAGE_SIZE, result.lines.size()))) {
+			sender.sendMessage("  " + line);
+		}
+		if (page < pages) {
+			sender.sendMessage("Next: /contraptions page " + (page + 1));
+		}
+		return true;
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerQuit(PlayerQuitEvent event) {
+		results.remove(event.getPlayer().getName());
+	}
+
+	private static class Result {
+		private final String title;
+		private final List<String> lines;
+
+		private Result(String title, List<String> lines) {
+			this.title = title;
+			this.lines = lines;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.programmerdan.minecraft.contraptions.commands;
+
+import java.util.List;
+
+import org.bukkit.command.CommandSender;
+
+import com.programmerdan.minecraft.contraptions.ConfigurationReader;
+import com.programmerdan.minecraft.contraptions.Contraptions;
+import com.programmerdan.minecraft.contraptions.ContraptionsConfiguration.MonitorBase;
+
+/**
+ * Re-reads config.yml and applies it live: monitors are resized and re-partitioned,
+ * and cache capacities adjusted, without a restart.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class ReloadCommand extends AbstractCommand {
+
+	public ReloadCommand(Contraptions instance) {
+		super(instance, "reload");
+	}
+
+	@Override
+	public boolean onCommand(CommandSender sender, List<String> args) {
+		if (!ConfigurationReader.readConfig()) {
+			sender.sendMessage("Configuration version mismatch; keeping the current configuration.");
+			return true;
+		}
+		MonitorBase monitors = Contraptions.config().getMonitors();
+		sender.sendMessage("Contraptions configuration reloaded: " + monitors.getCount() + " monitors, "
+				+ monitors.getStrategy() + ", every " + monitors.getUpdateFrequency() + " ticks.");
+		return true;
+	}
+}
@@ -0,0 +1,108 @@
+package com.programmerdan.minecraft.contraptions.commands;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.programmerdan.minecraft.contraptions.Contraptions;
+import com.programmerdan.minecraft.contraptions.trace.TraceWriter;
+
+/**
+ * Starts and stops recording an engine trace, for replay off-server with
+ * {@link com.programmerdan.minecraft.contraptions.trace.TraceReplay}.
+ * 
+ * <code>/contraptions trace start [name]</code>, <code>stop</code>, or <code>status</code>.
+ * Traces are written to the plugin's traces folder.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class TraceCommand extends AbstractCommand {
+
+	private BukkitTask ticker;
+
+	public TraceCommand(Contraptions instance) {
+		super(instance, "trace");
+	}
+
+	@Override
+	public boolean onCommand(CommandSender sender, List<String> args) {
+		if (args.isEmpty()) {
+			return false;
+		}
+		String action = args.get(0).toLowerCase();
+		if ("start".equals(action)) {
+			return start(sender, args.size() > 1 ? args.get(1) : "trace-" + System.currentTimeMillis());
+		} else if ("stop".equals(action)) {
+			return stop(sender);
+		} else if ("status".equals(action)) {
+			TraceWriter trace = TraceWriter.current();
+			if (trace == null) {
+				sender.sendMessage("Not recording.");
+			} else {
+				sender.sendMessage("Recording to " + trace.getFile().getName() + ", " + trace.getRecords() + " records.");
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private boolean start(CommandSender sender, String name) {
+		if (TraceWriter.current() != null) {
+			sender.sendMessage("Already recording to " + TraceWriter.current().getFile().getName());
+			return true;
+		}
+		File folder = new File(plugin.getDataFolder(), "traces");
+		if (!folder.isDirectory() && !folder.mkdirs()) {
+			sender.sendMessage("Unable to create " + folder);
+			return true;
+		}
+		final TraceWriter trace;
+		try {
+			trace = new TraceWriter(new File(folder, name + ".trace"));
+		} catch (IOException e) {
+			Contraptions.logger().log(Level.WARNING, "Unable to start trace " + name, e);
+			sender.sendMessage("Unable to start trace: " + e.getMessage());
+			return true;
+		}
+		Contraptions.monitorPool().startTrace(trace);
+		ticker = Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+			private long tick;
+
+			@Override
+			public void run() {
+				trace.tick(tick++);
+			}
+		}, 1L, 1L);
+		sender.sendMessage("Recording to " + trace.getFile().getName());
+		return true;
+	}
+
+	private boolean stop(CommandSender sender) {
+		TraceWriter trace = TraceWriter.setCurrent(null);
+		if (ticker != null) {
+			ticker.cancel();
+			ticker = null;
+		}
+		if (trace == null) {
+			sender.sendMessage("Not recording.");
+			return true;
+		}
+		try {
+			trace.close();
+		} catch (IOException e) {
+			Contraptions.logger().log(Level.WARNING, "Unable to close trace " + trace.getFile(), e);
+		}
+		if (trace.getFailure() != null) {
+			sender.sendMessage("Trace " + trace.getFile().getName() + " stopped early: " + trace.getFailure().getMessage());
+		} else {
+			sender.sendMessage("Trace " + trace.getFile().getName() + " closed, " + trace.getRecords() + " records.");
+		}
+		return true;
+	}
+}
@@ -0,0 +1,103 @@
+package com.programmerdan.minecraft.contraptions.engine;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+
+/**
+ * Keeps track of which chunks are loaded, from chunk load and unload events, so
+ * monitors can tell if a Contraption is loaded without asking the world from off the
+ * main thread.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class ChunkTracker implements Listener {
+	private final ConcurrentMap<UUID, Set<Long>> worlds = new ConcurrentHashMap<UUID, Set<Long>>();
+
+	/**
+	 * Records every chunk already loaded, e.g. on enable or reload. Main thread only.
+	 */
+	public void seed() {
+		for (World world : Bukkit.getWorlds()) {
+			for (Chunk chunk : world.getLoadedChunks()) {
+				chunks(world).add(key(chunk.getX(), chunk.getZ()));
+			}
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onChunkLoad(ChunkLoadEvent event) {
+		Chunk chunk = event.getChunk();
+		chunks(chunk.getWorld()).add(key(chunk.getX(), chunk.getZ()));
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onChunkUnload(ChunkUnloadEvent event) {
+		Chunk chunk = event.getChunk();
+		chunks(chunk.getWorld()).remove(key(chunk.getX(), chunk.getZ()));
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onWorldUnload(WorldUnloadEvent event) {
+		worlds.remove(event.getWorld().getUID());
+	}
+
+	/**
+	 * @return true if the chunk holding <code>location</code> is loaded, or if it has no
+	 *         world, as when running headless.
+	 */
+	public boolean isLoaded(Location location) {
+		if (location == null || location.getWorld() == null) {
+			return true;
+		}
+		Set<Long> chunks = worlds.get(location.getWorld().getUID());
+		return chunks != null && chunks.contains(key(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+	}
+
+	/**
+	 * Call holding the Contraption's lock.
+	 * 
+	 * @return true if any Gadget of <code>contraption</code> is in a loaded chunk.
+	 */
+	public boolean isLoaded(Contraption contraption) {
+		for (GadgetBase gadget : contraption.getGraph().getGadgets().values()) {
+			if (isLoaded(gadget.getLocation())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Set<Long> chunks(World world) {
+		Set<Long> chunks = worlds.get(world.getUID());
+		if (chunks == null) {
+			chunks = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+			Set<Long> raced = worlds.putIfAbsent(world.getUID(), chunks);
+			if (raced != null) {
+				chunks = raced;
+			}
+		}
+		return chunks;
+	}
+
+	private static long key(int x, int z) {
+		return ((long) x << 32) | (z & 0xFFFFFFFFL);
+	}
+}
@@ -0,0 +1,373 @@
+package com.programmerdan.minecraft.contraptions.engine;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.programmerdan.minecraft.contraptions.ContraptionsConfiguration.MonitorBase;
+import com.programmerdan.minecraft.contraptions.UpdateMode;
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+import com.programmerdan.minecraft.contraptions.time.TimeMeasure;
+import com.programmerdan.minecraft.contraptions.trace.TraceWriter;
+
+/**
+ * One monitor: owns a partition of Contraptions and brings each up to date every
+ * <code>update_frequency</code> ticks. With rolling updates, its Contraptions are split
+ * into <code>update_frequency</code> buckets and one bucket is updated each tick instead,
+ * so the work is spread out rather than landing all at once.
+ *
+ * With scheduled updates, the monitor instead wakes every tick and only updates the
+ * Contraptions that are due. After each update, a Contraption is next due when the
+ * {@link FlowSolver#horizon(com.programmerdan.minecraft.contraptions.graph.ContraptionGraph) horizon}
+ * says some storage will fill or empty, but no sooner than <code>update_frequency</code>
+ * and no later than <code>max_idle</code> ticks on. A {@link Contraption#wake()} makes it
+ * due at once. Updates then cover all the time since the last one, so a Contraption
+ * left idle costs nothing until it is due. Catching up takes several solves when
+ * storages fill or empty along the way; each advances items and grids alike by only the
+ * span it applied, so together they never cover more than the time elapsed.
+ *
+ * A Contraption forced out of {@link UpdateMode#normal} by its footprint is updated
+ * <code>coarse_factor</code> times less often, over spans as much longer; when
+ * dehydrated, its cached links are dropped after each update.
+ *
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class ContraptionMonitor implements Runnable {
+	/**
+	 * Most solves per update when catching up; the rest carries over to the next update.
+	 */
+	private static final int CATCH_UP = 8;
+
+	private final List<Contraption> assigned = new ArrayList<Contraption>();
+	private final MonitorBase settings;
+	private final FlowSolver solver;
+	private final ChunkTracker chunks;
+	private final Logger logger;
+	private final TimeMeasure span;
+	private final TimeMeasure coarseSpan;
+	private long cursor;
+	private long passes;
+	private ScheduledFuture<?> future;
+	private final AtomicLong updates = new AtomicLong();
+	private final AtomicLong updateNanos = new AtomicLong();
+
+	private final Map<Contraption, Long> due = new IdentityHashMap<Contraption, Long>();
+	private final PriorityQueue<Due> queue = new PriorityQueue<Due>();
+	private final ConcurrentLinkedQueue<Contraption> woken = new ConcurrentLinkedQueue<Contraption>();
+
+	public ContraptionMonitor(MonitorBase settings, FlowSolver solver, ChunkTracker chunks, Logger logger) {
+		this.settings = settings;
+		this.solver = solver;
+		this.chunks = chunks;
+		this.logger = logger;
+		this.span = new TimeMeasure(settings.getUpdateFrequency());
+		this.coarseSpan = new TimeMeasure(settings.getUpdateFrequency() * settings.getCoarseFactor());
+	}
+
+	public void assign(Contraption contraption) {
+		assign(contraption, MonitorPool.currentTick());
+	}
+
+	/**
+	 * Assigns <code>contraption</code> as of engine tick <code>now</code>, e.g. when
+	 * replaying a trace on its own clock.
+	 */
+	public synchronized void assign(final Contraption contraption, long now) {
+		assigned.add(contraption);
+		if (settings.isScheduledUpdates()) {
+			contraption.setWaker(new Runnable() {
+				@Override
+				public void run() {
+					woken.add(contraption);
+				}
+			});
+			schedule(contraption, now);
+		}
+	}
+
+	public synchronized boolean unassign(Contraption contraption) {
+		due.remove(contraption);
+		return assigned.remove(contraption);
+	}
+
+	public synchronized List<Contraption> getAssigned() {
+		return new ArrayList<Contraption>(assigned);
+	}
+
+	/**
+	 * @return the number of Gadgets across all assigned Contraptions.
+	 */
+	public synchronized int getLoad() {
+		int load = 0;
+		for (Contraption contraption : assigned) {
+			// not getGraph(); that would wait out any update in progress.
+			load += contraption.getGadgetCount();
+		}
+		return load;
+	}
+
+	/**
+	 * @return Contraption updates run by this monitor so far.
+	 */
+	public long getUpdates() {
+		return updates.get();
+	}
+
+	/**
+	 * @return total time spent in Contraption updates by this monitor so far, in nanoseconds.
+	 */
+	public long getUpdateNanos() {
+		return updateNanos.get();
+	}
+
+	/**
+	 * @return ticks between runs of this monitor.
+	 */
+	public long getPeriod() {
+		return settings.isRollingUpdates() || settings.isScheduledUpdates() ? 1L : settings.getUpdateFrequency();
+	}
+
+	void setFuture(ScheduledFuture<?> future) {
+		this.future = future;
+	}
+
+	void cancel() {
+		if (future != null) {
+			future.cancel(false);
+		}
+	}
+
+	@Override
+	public void run() {
+		runAt(MonitorPool.currentTick());
+	}
+
+	/**
+	 * Runs one pass of this monitor as of engine tick <code>now</code>. Scheduled and
+	 * otherwise run every {@link #getPeriod()} ticks; a trace replay calls this directly,
+	 * on the trace's own clock.
+	 */
+	public void runAt(long now) {
+		if (settings.isScheduledUpdates()) {
+			runDue(now);
+			return;
+		}
+		List<Contraption> work;
+		boolean coarseDue;
+		synchronized (this) {
+			long round;
+			if (settings.isRollingUpdates()) {
+				long buckets = settings.getUpdateFrequency();
+				long bucket = cursor % buckets;
+				round = cursor++ / buckets;
+				work = new ArrayList<Contraption>();
+				for (int i = 0; i < assigned.size(); i++) {
+					if (i % buckets == bucket) {
+						work.add(assigned.get(i));
+					}
+				}
+			} else {
+				round = passes++;
+				work = new ArrayList<Contraption>(assigned);
+			}
+			coarseDue = round % settings.getCoarseFactor() == 0;
+		}
+		for (Contraption contraption : work) {
+			boolean coarse = contraption.getUpdateMode() != UpdateMode.normal;
+			if (coarse && !coarseDue) {
+				continue;
+			}
+			// an uncaught exception would silently end this monitor's schedule.
+			try {
+				update(contraption, coarse ? coarseSpan : span);
+			} catch (RuntimeException e) {
+				logger.log(Level.WARNING, "Contraption " + contraption.getId() + " failed to update", e);
+			}
+		}
+	}
+
+	private void update(Contraption contraption, TimeMeasure span) {
+		synchronized (contraption) {
+			if (!settings.isRunUnloaded() && !chunks.isLoaded(contraption)) {
+				return;
+			}
+			long started = System.nanoTime();
+			TimeMeasure applied = solver.solve(contraption.getGraph(), span);
+			if (contraption.getUpdateMode() == UpdateMode.dehydrated) {
+				contraption.getGraph().dehydrate();
+			}
+			updateNanos.addAndGet(System.nanoTime() - started);
+			updates.incrementAndGet();
+			TraceWriter trace = TraceWriter.current();
+			if (trace != null) {
+				trace.update(contraption, span, applied);
+			}
+		}
+	}
+
+	private void runDue(long now) {
+		List<Contraption> work = new ArrayList<Contraption>();
+		synchronized (this) {
+			Contraption contraption;
+			while ((contraption = woken.poll()) != null) {
+				if (due.containsKey(contraption)) {
+					schedule(contraption, now);
+				}
+			}
+			while (!queue.isEmpty() && queue.peek().tick <= now) {
+				Due next = queue.poll();
+				Long current = due.get(next.contraption);
+				// superseded entries are left in the queue and skipped here.
+				if (current != null && current == next.tick) {
+					due.put(next.contraption, Long.MAX_VALUE);
+					work.add(next.contraption);
+				}
+			}
+		}
+		for (Contraption contraption : work) {
+			long next;
+			try {
+				next = updateDue(contraption, now);
+			} catch (RuntimeException e) {
+				logger.log(Level.WARNING, "Contraption " + contraption.getId() + " failed to update", e);
+				next = now + settings.getUpdateFrequency();
+			}
+			synchronized (this) {
+				// only if still ours, and not woken while updating.
+				Long current = due.get(contraption);
+				if (current != null && current == Long.MAX_VALUE) {
+					schedule(contraption, next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Brings <code>contraption</code> up to <code>now</code>, and works out when it is next due.
+	 */
+	private long updateDue(Contraption contraption, long now) {
+		UpdateMode mode = contraption.getUpdateMode();
+		long frequency = settings.getUpdateFrequency();
+		long maxIdle = settings.getMaxIdle();
+		if (mode != UpdateMode.normal) {
+			frequency *= settings.getCoarseFactor();
+			maxIdle = Math.max(maxIdle, frequency);
+		}
+		synchronized (contraption) {
+			long last = contraption.getUpdatedTick();
+			if (last < 0L || last > now) {
+				last = now - frequency;
+			}
+			if (!settings.isRunUnloaded() && !chunks.isLoaded(contraption)) {
+				contraption.setUpdatedTick(now);
+				return now + frequency;
+			}
+			long started = System.nanoTime();
+			long behind = catchUp(contraption, last, now);
+			double horizon = solver.horizon(contraption.getGraph()).getLength();
+			if (mode == UpdateMode.dehydrated) {
+				contraption.getGraph().dehydrate();
+			}
+			updateNanos.addAndGet(System.nanoTime() - started);
+			updates.incrementAndGet();
+
+			if (behind > 0L) {
+				return now + frequency;
+			}
+			long wait = horizon >= maxIdle ? maxIdle : (long) Math.ceil(horizon);
+			return now + Math.max(frequency, wait);
+		}
+	}
+
+	/**
+	 * Brings <code>contraption</code> up to <code>now</code> ahead of its schedule, e.g.
+	 * before its storage is replaced from outside the engine, so flows up to the change
+	 * are settled against what was there before it. Takes the Contraption's lock, which
+	 * the caller may already hold. Does nothing on a fixed schedule, where each update
+	 * covers a set span whenever it runs.
+	 */
+	public void bringUpTo(Contraption contraption, long now) {
+		if (!settings.isScheduledUpdates()) {
+			return;
+		}
+		synchronized (contraption) {
+			long last = contraption.getUpdatedTick();
+			if (last < 0L || last >= now) {
+				return;
+			}
+			if (!settings.isRunUnloaded() && !chunks.isLoaded(contraption)) {
+				contraption.setUpdatedTick(now);
+				return;
+			}
+			long started = System.nanoTime();
+			catchUp(contraption, last, now);
+			updateNanos.addAndGet(System.nanoTime() - started);
+			updates.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Solves from <code>last</code> to <code>now</code>, in as many solves as storages
+	 * filling or emptying along the way take, up to {@link #CATCH_UP}, and records how far
+	 * it got. The caller holds the Contraption's lock.
+	 * 
+	 * @return ticks still behind.
+	 */
+	private long catchUp(Contraption contraption, long last, long now) {
+		double remaining = now - last;
+		TraceWriter trace = TraceWriter.current();
+		for (int round = 0; round < CATCH_UP && remaining > 0.0d; round++) {
+			TimeMeasure requested = new TimeMeasure(remaining);
+			TimeMeasure applied = solver.solve(contraption.getGraph(), requested);
+			if (trace != null) {
+				trace.update(contraption, requested, applied);
+			}
+			if (applied.getLength() <= 0.0d) {
+				// stuck; the time is lost, as it would be on a fixed schedule.
+				remaining = 0.0d;
+			} else {
+				remaining -= applied.getLength();
+			}
+		}
+		long behind = remaining > 0.0d ? (long) Math.ceil(remaining) : 0L;
+		contraption.setUpdatedTick(now - behind);
+		return behind;
+	}
+
+	private void schedule(Contraption contraption, long tick) {
+		due.put(contraption, tick);
+		queue.add(new Due(tick, contraption));
+		if (queue.size() > 2 * due.size() + 64) {
+			// too many superseded entries; rebuild from what is actually scheduled.
+			queue.clear();
+			for (Map.Entry<Contraption, Long> entry : due.entrySet()) {
+				if (entry.getValue() != Long.MAX_VALUE) {
+					queue.add(new Due(entry.getValue(), entry.getKey()));
+				}
+			}
+		}
+	}
+
+	private static class Due implements Comparable<Due> {
+		private final long tick;
+		private final Contraption contraption;
+
+		private Due(long tick, Contraption contraption) {
+			this.tick = tick;
+			this.contraption = contraption;
+		}
+
+		@Override
+		public int compareTo(Due other) {
+			return tick < other.tick ? -1 : (tick > other.tick ? 1 : 0);
+		}
+	}
+}
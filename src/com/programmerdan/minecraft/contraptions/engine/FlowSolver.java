@@ -0,0 +1,460 @@
+package com.programmerdan.minecraft.contraptions.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.gadget.ItemStore;
+import com.programmerdan.minecraft.contraptions.graph.ContraptionGraph;
+import com.programmerdan.minecraft.contraptions.graph.GadgetLink;
+import com.programmerdan.minecraft.contraptions.grid.GridMember;
+import com.programmerdan.minecraft.contraptions.grid.ResourceGrid;
+import com.programmerdan.minecraft.contraptions.rate.FixedPoint;
+import com.programmerdan.minecraft.contraptions.rate.PipedRate;
+import com.programmerdan.minecraft.contraptions.time.TimeMeasure;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+
+/**
+ * Moves items across a {@link ContraptionGraph} for a span of time.
+ * 
+ * Each Gadget only knows its own edges; the solver supplies the global view. For each
+ * link, items move from one side to the other if the source pushes or the destination
+ * pulls, limited by what the source offers, what the destination accepts, and the
+ * link's capacity. Gadgets with explicit input or output links only exchange along
+ * those. The span is then shortened to what every storage along the way can
+ * sustain (see {@link GadgetBase#timeFitAdjustStorage(List, List)}), and applied.
+ * 
+ * A Gadget that cannot sustain the flows at all is left out and the flows re-solved
+ * without it, so one full chest doesn't stall the whole Contraption.
+ * 
+ * Solving runs in phases. Asking each Gadget what it offers and accepts, how long it
+ * can sustain its flows, and applying them, only ever touches that one Gadget; those
+ * phases are split across a fork-join pool for Contraptions of at least
+ * <code>threshold</code> Gadgets. Matching offers to acceptances along links is what
+ * ties Gadgets together, and stays on the calling thread, in link order, so results
+ * are identical however many threads take part.
+ * 
+ * Virtual Resources carried by {@link ResourceGrid}s don't flow item by item; each grid
+ * is advanced as one node, over the same span items are, once that is known and before
+ * item flows are applied.
+ * 
+ * Given a {@link FixedPoint} resolution, a shortened span is rounded down to it, and
+ * every amount moved along a link is rounded down to it, with what is left over carried
+ * on the link into a later update (see {@link GadgetLink#carry}). A carry is paid out
+ * only from offers and room the update left unclaimed, scaled to the span applied, so
+ * storage never has to clamp it and no items are made or lost; but a carry may wait
+ * longer, and land differently, depending on how updates are split. This keeps moved
+ * amounts on the resolution and stops fractions piling up in storage. It does not make
+ * results exact or reproducible across different update splits: spans, carries and
+ * storage are still doubles, and Gadgets that transform their contents, and grids,
+ * work in floating point throughout.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class FlowSolver {
+	/**
+	 * Gadgets per fork-join leaf task; below this, splitting further costs more than it saves.
+	 */
+	private static final int GRAIN = 64;
+
+	private final ForkJoinPool pool;
+	private final int threshold;
+	private final FixedPoint resolution;
+
+	/**
+	 * A solver that always runs on the calling thread.
+	 */
+	public FlowSolver() {
+		this(null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param pool the pool to split large Contraptions across, or null to never split
+	 * @param threshold Contraptions with at least this many Gadgets are split
+	 */
+	public FlowSolver(ForkJoinPool pool, int threshold) {
+		this(pool, threshold, null);
+	}
+
+	/**
+	 * @param pool the pool to split large Contraptions across, or null to never split
+	 * @param threshold Contraptions with at least this many Gadgets are split
+	 * @param resolution what to round moved amounts to, or null to leave them in floating point
+	 */
+	public FlowSolver(ForkJoinPool pool, int threshold, FixedPoint resolution) {
+		this.pool = pool;
+		this.threshold = threshold;
+		this.resolution = resolution;
+	}
+
+	/**
+	 * Solves and applies flows for up to <code>time</code>.
+	 * 
+	 * @param graph the graph to advance
+	 * @param time the span to advance by
+	 * @return the span actually applied; may be shorter than requested if a storage
+	 *   filled or emptied along the way.
+	 */
+	public TimeMeasure solve(ContraptionGraph graph, TimeMeasure time) {
+		// formed first; members on a grid offer and accept differently.
+		List<ResourceGrid> grids = graph.getGrids();
+		final Solution solution = settle(graph, time);
+		double fit = solution.fit;
+		if (resolution != null && fit < time.getLength() && resolution.floor(fit) > 0.0d) {
+			fit = resolution.floor(fit);
+		}
+		final TimeMeasure applied = fit < time.getLength() ? new TimeMeasure(fit) : time;
+		// only over the span items actually move, or grids would run ahead of them.
+		for (ResourceGrid grid : grids) {
+			if (grid.advance(applied.getLength())) {
+				for (GridMember member : grid.getMembers()) {
+					if (member instanceof GadgetBase) {
+						((GadgetBase) member).markDirty();
+					}
+				}
+			}
+		}
+		final GadgetBase[] gadgets = solution.gadgets;
+		final Flows flows = solution.flows;
+		if (resolution != null) {
+			flows.round(resolution, applied);
+		}
+		forEach(gadgets.length, solution.parallel, new GadgetWork() {
+			@Override
+			public void run(int i) {
+				if (flows.touched[i] && gadgets[i].hasStorage()) {
+					gadgets[i].adjustStorage(flows.in(i), flows.out(i), applied);
+					gadgets[i].markDirty();
+				}
+			}
+		});
+		return applied;
+	}
+
+	/**
+	 * Works out how long the graph can keep flowing as it does now before some storage
+	 * fills or empties, or a grid's storage does, without changing anything. Flows are
+	 * taken at their instantaneous rates.
+	 * 
+	 * @param graph the graph to look at
+	 * @return time until the next change; infinite if nothing is moving.
+	 */
+	public TimeMeasure horizon(ContraptionGraph graph) {
+		double horizon = Double.POSITIVE_INFINITY;
+		for (ResourceGrid grid : graph.getGrids()) {
+			horizon = Math.min(horizon, grid.timeToChange());
+		}
+		return new TimeMeasure(Math.min(horizon, settle(graph, TimeMeasure.ONE).fit));
+	}
+
+	/**
+	 * Matches flows over <code>time</code>, leaving out any Gadget that can't sustain its
+	 * flows at all, and finds how long the rest can.
+	 */
+	private Solution settle(ContraptionGraph graph, final TimeMeasure time) {
+		List<GadgetLink> links = graph.getLinks();
+		final GadgetBase[] gadgets = graph.getGadgets().values().toArray(new GadgetBase[0]);
+		final boolean parallel = pool != null && gadgets.length >= threshold;
+		final Map<GadgetBase, Integer> index = new IdentityHashMap<GadgetBase, Integer>(gadgets.length * 2);
+		for (int i = 0; i < gadgets.length; i++) {
+			index.put(gadgets[i], i);
+		}
+
+		final boolean[] pushes = new boolean[gadgets.length];
+		final boolean[] pulls = new boolean[gadgets.length];
+		final List<PipedRate>[] offers = lists(gadgets.length);
+		final List<PipedRate>[] accepts = lists(gadgets.length);
+		forEach(gadgets.length, parallel, new GadgetWork() {
+			@Override
+			public void run(int i) {
+				GadgetBase gadget = gadgets[i];
+				pushes[i] = gadget.hasOutputPush();
+				pulls[i] = gadget.hasInputPull();
+				if (pushes[i]) {
+					offers[i] = gadget.getOutputPush(time);
+				} else if (gadget.hasMaximumOutput()) {
+					offers[i] = gadget.getMaximumOutput(time);
+				}
+				if (pulls[i]) {
+					accepts[i] = gadget.getInputPull(time);
+				} else if (gadget.hasMaximumInput()) {
+					accepts[i] = gadget.getMaximumInput(time);
+				}
+			}
+		});
+
+		final boolean[] blocked = new boolean[gadgets.length];
+		while (true) {
+			final Flows flows = new Flows(time, gadgets.length, offers, accepts);
+			for (GadgetLink link : links) {
+				int a = index.get(link.getA());
+				int b = index.get(link.getB());
+				if (blocked[a] || blocked[b]) {
+					continue;
+				}
+				if (pushes[a] || pulls[b]) {
+					flows.transfer(link, true, a, b);
+				}
+				if (pushes[b] || pulls[a]) {
+					flows.transfer(link, false, b, a);
+				}
+			}
+
+			final double[] fits = new double[gadgets.length];
+			forEach(gadgets.length, parallel, new GadgetWork() {
+				@Override
+				public void run(int i) {
+					fits[i] = flows.touched[i] && gadgets[i].hasStorage()
+							? gadgets[i].timeFitAdjustStorage(flows.in(i), flows.out(i)).getLength()
+							: Double.POSITIVE_INFINITY;
+				}
+			});
+			double fit = Double.POSITIVE_INFINITY;
+			boolean stalled = false;
+			for (int i = 0; i < fits.length; i++) {
+				if (fits[i] <= 0.0d) {
+					blocked[i] = true;
+					stalled = true;
+				} else {
+					fit = Math.min(fit, fits[i]);
+				}
+			}
+			if (!stalled) {
+				return new Solution(gadgets, flows, fit, parallel);
+			}
+		}
+	}
+
+	private void forEach(int count, boolean parallel, GadgetWork work) {
+		if (parallel && count > GRAIN) {
+			try {
+				pool.invoke(new Slice(work, 0, count));
+				return;
+			} catch (RejectedExecutionException e) {
+				// pool was shut down by a reconfigure mid-solve; nothing ran, so finish here.
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			work.run(i);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<PipedRate>[] lists(int count) {
+		return (List<PipedRate>[]) new List<?>[count];
+	}
+
+	private interface GadgetWork {
+		void run(int index);
+	}
+
+	private static class Slice extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final GadgetWork work;
+		private final int from;
+		private final int to;
+
+		Slice(GadgetWork work, int from, int to) {
+			this.work = work;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= GRAIN) {
+				for (int i = from; i < to; i++) {
+					work.run(i);
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Slice(work, from, mid), new Slice(work, mid, to));
+			}
+		}
+	}
+
+	/**
+	 * Working state for one matching pass: how much of each offer and acceptance is still
+	 * unclaimed, and the flows found so far, all by Gadget index.
+	 */
+	private static class Solution {
+		private final GadgetBase[] gadgets;
+		private final Flows flows;
+		private final double fit;
+		private final boolean parallel;
+
+		private Solution(GadgetBase[] gadgets, Flows flows, double fit, boolean parallel) {
+			this.gadgets = gadgets;
+			this.flows = flows;
+			this.fit = fit;
+			this.parallel = parallel;
+		}
+	}
+
+	/**
+	 * One flow along a link, with where it came from: offer <code>offer</code> of Gadget
+	 * <code>source</code>, into acceptance <code>accept</code> of Gadget <code>destination</code>.
+	 */
+	private static class Transfer {
+		private final PipedRate rate;
+		private final GadgetLink link;
+		private final boolean fromA;
+		private final int source;
+		private final int offer;
+		private final int destination;
+		private final int accept;
+
+		private Transfer(PipedRate rate, GadgetLink link, boolean fromA, int source, int offer,
+				int destination, int accept) {
+			this.rate = rate;
+			this.link = link;
+			this.fromA = fromA;
+			this.source = source;
+			this.offer = offer;
+			this.destination = destination;
+			this.accept = accept;
+		}
+	}
+
+	private static class Flows {
+		private final TimeMeasure time;
+		private final List<PipedRate>[] offers;
+		private final List<PipedRate>[] accepts;
+		private final double[][] offerLeft;
+		private final double[][] acceptLeft;
+		private final List<PipedRate>[] inflow;
+		private final List<PipedRate>[] outflow;
+		private final boolean[] touched;
+		private final List<Transfer> transfers = new ArrayList<Transfer>();
+
+		Flows(TimeMeasure time, int count, List<PipedRate>[] offers, List<PipedRate>[] accepts) {
+			this.time = time;
+			this.offers = offers;
+			this.accepts = accepts;
+			this.offerLeft = new double[count][];
+			this.acceptLeft = new double[count][];
+			this.inflow = lists(count);
+			this.outflow = lists(count);
+			this.touched = new boolean[count];
+		}
+
+		void transfer(GadgetLink link, boolean fromA, int s, int d) {
+			if (offers[s] == null || accepts[d] == null) {
+				return;
+			}
+			GadgetBase source = fromA ? link.getA() : link.getB();
+			GadgetBase destination = fromA ? link.getB() : link.getA();
+			double capacity = link.getCapacity();
+			if (!allows(source.getOutputLinks(), destination) || !allows(destination.getInputLinks(), source)) {
+				return;
+			}
+			double[] offered = remaining(offerLeft, offers, s);
+			double[] accepted = remaining(acceptLeft, accepts, d);
+			double room = capacity * time.getLength();
+			for (int i = 0; i < offered.length && room > 0.0d; i++) {
+				AdvItemStack item = offers[s].get(i).getResource();
+				for (int j = 0; j < accepted.length && offered[i] > 0.0d; j++) {
+					if (accepted[j] <= 0.0d || !item.satisfies(accepts[d].get(j).getResource())) {
+						continue;
+					}
+					double amount = Math.min(room, Math.min(offered[i], accepted[j]));
+					offered[i] -= amount;
+					accepted[j] -= amount;
+					room -= amount;
+					PipedRate rate = new PipedRate(new AdvItemStack(item.getType(), amount, item.getMeta()), time);
+					flows(outflow, s).add(rate);
+					flows(inflow, d).add(rate);
+					transfers.add(new Transfer(rate, link, fromA, s, i, d, j));
+					touched[s] = true;
+					touched[d] = true;
+				}
+			}
+		}
+
+		/**
+		 * Replaces every flow with the amount it moves over <code>applied</code>, rounded
+		 * down to <code>resolution</code> via its link's carry. A carry is only paid out as
+		 * far as the source still has to offer and the destination still has room for; the
+		 * rest waits. Link capacity doesn't bound it, as the carry is capacity already
+		 * granted in earlier updates. Runs in link order.
+		 */
+		void round(FixedPoint resolution, TimeMeasure applied) {
+			Map<PipedRate, PipedRate> rounded = new IdentityHashMap<PipedRate, PipedRate>(transfers.size() * 2);
+			// what is left unclaimed is over the solved span; only its share of applied is free.
+			double scale = time.getLength() > 0.0d ? applied.getLength() / time.getLength() : 0.0d;
+			for (Transfer transfer : transfers) {
+				AdvItemStack amount = transfer.rate.getResourceOverTime(applied);
+				if (amount.getType() != null) {
+					double[] offered = offerLeft[transfer.source];
+					double[] accepted = acceptLeft[transfer.destination];
+					double slack = Math.max(0.0d, Math.min(offered[transfer.offer], accepted[transfer.accept])) * scale;
+					double solved = amount.getSize();
+					double moved = transfer.link.carry(transfer.fromA, ItemStore.keyOf(amount), solved,
+							solved + slack, resolution);
+					if (moved > solved && scale > 0.0d) {
+						double claimed = (moved - solved) / scale;
+						offered[transfer.offer] -= claimed;
+						accepted[transfer.accept] -= claimed;
+					}
+					amount.setSize(moved);
+				}
+				rounded.put(transfer.rate, new PipedRate(amount, applied));
+			}
+			for (List<PipedRate> list : inflow) {
+				replace(list, rounded);
+			}
+			for (List<PipedRate> list : outflow) {
+				replace(list, rounded);
+			}
+		}
+
+		private static void replace(List<PipedRate> list, Map<PipedRate, PipedRate> rounded) {
+			if (list != null) {
+				for (int i = 0; i < list.size(); i++) {
+					list.set(i, rounded.get(list.get(i)));
+				}
+			}
+		}
+
+		List<PipedRate> in(int i) {
+			return inflow[i] == null ? Collections.<PipedRate>emptyList() : inflow[i];
+		}
+
+		List<PipedRate> out(int i) {
+			return outflow[i] == null ? Collections.<PipedRate>emptyList() : outflow[i];
+		}
+
+		/**
+		 * Gadgets that declare explicit links (see {@link GadgetBase#outputLink}) only
+		 * exchange with those; Gadgets that declare none exchange with any neighbor.
+		 */
+		private static boolean allows(List<?> links, GadgetBase other) {
+			return links == null || links.isEmpty() || links.contains(other);
+		}
+
+		private static double[] remaining(double[][] left, List<PipedRate>[] rates, int i) {
+			if (left[i] == null) {
+				left[i] = new double[rates[i].size()];
+				for (int k = 0; k < left[i].length; k++) {
+					left[i][k] = rates[i].get(k).getResource().getSize();
+				}
+			}
+			return left[i];
+		}
+
+		private static List<PipedRate> flows(List<PipedRate>[] all, int i) {
+			if (all[i] == null) {
+				all[i] = new ArrayList<PipedRate>();
+			}
+			return all[i];
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.programmerdan.minecraft.contraptions.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.programmerdan.minecraft.contraptions.ContraptionsConfiguration.MonitorBase;
+import com.programmerdan.minecraft.contraptions.UpdateMode;
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+import com.programmerdan.minecraft.contraptions.util.Footprint;
+
+/**
+ * Periodically estimates the heap each Contraption retains, and enforces the footprint
+ * caps: a Contraption over <code>max_contraption_footprint</code>, or owned by a player
+ * whose Contraptions together are over <code>max_player_footprint</code>, is forced into
+ * the <code>over_cap_mode</code> until it is back under by a margin, {@link #RELEASE}, so
+ * a Contraption hovering at a cap doesn't flap between modes every audit. Owners are set
+ * by whatever creates the Contraption; one with no owner only counts against its own cap.
+ * <br>
+ * Each Contraption is locked only while it is estimated. The results of the last audit
+ * are kept for admin commands and metrics, so reading them costs nothing.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class FootprintAudit implements Runnable {
+	/**
+	 * Orders Contraptions by their last estimated footprint, largest first.
+	 */
+	public static final Comparator<Contraption> LARGEST_FIRST = new Comparator<Contraption>() {
+		@Override
+		public int compare(Contraption a, Contraption b) {
+			return a.getFootprint() > b.getFootprint() ? -1 : (a.getFootprint() < b.getFootprint() ? 1 : 0);
+		}
+	};
+
+	/**
+	 * A Contraption forced out of normal updates returns once under this fraction of
+	 * every cap it was held to.
+	 */
+	public static final double RELEASE = 0.9d;
+
+	private final MonitorPool pool;
+	private final Logger logger;
+
+	private volatile List<Contraption> audited = Collections.emptyList();
+	private volatile Map<UUID, Long> players = Collections.emptyMap();
+	private volatile long total;
+	private volatile int overCap;
+	private volatile long auditedAt;
+
+	public FootprintAudit(MonitorPool pool, Logger logger) {
+		this.pool = pool;
+		this.logger = logger;
+	}
+
+	@Override
+	public void run() {
+		try {
+			audit(pool.getSettings(), pool.getContraptions());
+		} catch (RuntimeException e) {
+			// an uncaught exception would silently end the audit schedule.
+			logger.log(Level.WARNING, "Footprint audit failed", e);
+		}
+	}
+
+	/**
+	 * Estimates every Contraption in <code>contraptions</code>, and sets each one's update
+	 * mode per the caps in <code>settings</code>.
+	 */
+	public synchronized void audit(MonitorBase settings, List<Contraption> contraptions) {
+		Map<UUID, Long> owned = new HashMap<UUID, Long>();
+		long sum = 0L;
+		for (Contraption contraption : contraptions) {
+			long bytes = contraption.estimateFootprint();
+			sum += bytes;
+			UUID owner = contraption.getOwner();
+			if (owner != null) {
+				Long before = owned.get(owner);
+				owned.put(owner, before == null ? bytes : before + bytes);
+			}
+		}
+		long maxContraption = settings.getMaxContraptionFootprint();
+		long maxPlayer = settings.getMaxPlayerFootprint();
+		int over = 0;
+		for (Contraption contraption : contraptions) {
+			UUID owner = contraption.getOwner();
+			double margin = contraption.getUpdateMode() == UpdateMode.normal ? 1.0d : RELEASE;
+			boolean exceeded = (maxContraption > 0L && contraption.getFootprint() > maxContraption * margin)
+					|| (maxPlayer > 0L && owner != null && owned.get(owner) > maxPlayer * margin);
+			UpdateMode mode = exceeded ? settings.getOverCapMode() : UpdateMode.normal;
+			if (exceeded) {
+				over++;
+			}
+			if (contraption.getUpdateMode() != mode) {
+				contraption.setUpdateMode(mode);
+				logger.info("Contraption " + contraption.getId() + " (" + Footprint.format(contraption.getFootprint())
+						+ (owner == null ? "" : ", owner " + owner) + ") now updating " + mode);
+			}
+		}
+		List<Contraption> sorted = new ArrayList<Contraption>(contraptions);
+		Collections.sort(sorted, LARGEST_FIRST);
+		this.audited = Collections.unmodifiableList(sorted);
+		this.players = Collections.unmodifiableMap(owned);
+		this.total = sum;
+		this.overCap = over;
+		this.auditedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return the Contraptions as of the last audit, largest first.
+	 */
+	public List<Contraption> getAudited() {
+		return audited;
+	}
+
+	/**
+	 * @return estimated bytes retained by each owner's Contraptions, as of the last audit.
+	 */
+	public Map<UUID, Long> getPlayers() {
+		return players;
+	}
+
+	/**
+	 * @return estimated bytes retained by all Contraptions, as of the last audit.
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return Contraptions over a cap at the last audit.
+	 */
+	public int getOverCap() {
+		return overCap;
+	}
+
+	/**
+	 * @return when the last audit finished, in milliseconds, or 0 if there hasn't been one.
+	 */
+	public long getAuditedAt() {
+		return auditedAt;
+	}
+}
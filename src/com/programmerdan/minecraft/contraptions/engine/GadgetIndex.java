@@ -0,0 +1,148 @@
+package com.programmerdan.minecraft.contraptions.engine;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+import com.programmerdan.minecraft.contraptions.graph.ContraptionGraph;
+import com.programmerdan.minecraft.contraptions.graph.PipeEdge;
+import com.programmerdan.minecraft.contraptions.util.LocationKey;
+
+/**
+ * Finds the Contraption a Gadget or Pipe block belongs to, and the Gadget itself, by
+ * world and packed location, e.g. for events on that block. Lookups don't lock, so are
+ * safe from the main thread while monitors run; changes are made under the
+ * {@link MonitorPool}'s lock. What they return is as of the Contraption's last indexing;
+ * anything acting on it should look the Gadget up again under the Contraption's lock.
+ * <br>
+ * A graph is in a single world; Pipe blocks are indexed in the world of its Gadgets.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class GadgetIndex {
+	private final Map<UUID, ConcurrentMap<Long, Entry>> worlds = new ConcurrentHashMap<UUID, ConcurrentMap<Long, Entry>>();
+	private final Map<Contraption, Indexed> indexed = new IdentityHashMap<Contraption, Indexed>();
+
+	/**
+	 * Indexes every Gadget of <code>contraption</code> that has a location, and every
+	 * Pipe block between them, replacing whatever was indexed for it before.
+	 */
+	synchronized void add(Contraption contraption) {
+		remove(contraption);
+		World world = null;
+		List<Long> keys = new ArrayList<Long>();
+		List<GadgetBase> gadgets = new ArrayList<GadgetBase>();
+		synchronized (contraption) {
+			ContraptionGraph graph = contraption.getGraph();
+			for (GadgetBase gadget : graph.getGadgets().values()) {
+				Location location = gadget.getLocation();
+				if (location != null && location.getWorld() != null) {
+					world = location.getWorld();
+					keys.add(LocationKey.of(location));
+					gadgets.add(gadget);
+				}
+			}
+			if (world != null) {
+				keys.addAll(graph.getJunctions());
+				for (PipeEdge edge : graph.getEdges()) {
+					for (long block : edge.getBlocks()) {
+						keys.add(block);
+					}
+				}
+			}
+		}
+		if (world == null) {
+			return;
+		}
+		ConcurrentMap<Long, Entry> blocks = worlds.get(world.getUID());
+		if (blocks == null) {
+			blocks = new ConcurrentHashMap<Long, Entry>();
+			worlds.put(world.getUID(), blocks);
+		}
+		Entry pipe = new Entry(contraption, null);
+		for (int i = 0; i < keys.size(); i++) {
+			blocks.put(keys.get(i), i < gadgets.size() ? new Entry(contraption, gadgets.get(i)) : pipe);
+		}
+		indexed.put(contraption, new Indexed(world.getUID(), keys));
+	}
+
+	synchronized void remove(Contraption contraption) {
+		Indexed entry = indexed.remove(contraption);
+		if (entry == null) {
+			return;
+		}
+		ConcurrentMap<Long, Entry> blocks = worlds.get(entry.world);
+		if (blocks != null) {
+			for (Long key : entry.keys) {
+				Entry current = blocks.get(key);
+				if (current != null && current.contraption == contraption) {
+					blocks.remove(key, current);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the Contraption with a Gadget or Pipe at <code>location</code>, or null if none.
+	 */
+	public Contraption find(Location location) {
+		Entry entry = lookup(location);
+		return entry == null ? null : entry.contraption;
+	}
+
+	/**
+	 * @return what is at <code>location</code>, or null if no Gadget or Pipe is.
+	 */
+	public Entry lookup(Location location) {
+		if (location == null || location.getWorld() == null) {
+			return null;
+		}
+		Map<Long, Entry> blocks = worlds.get(location.getWorld().getUID());
+		return blocks == null ? null : blocks.get(LocationKey.of(location));
+	}
+
+	/**
+	 * An indexed block: the Contraption it belongs to, and the Gadget there, if it isn't
+	 * a Pipe.
+	 */
+	public static final class Entry {
+		private final Contraption contraption;
+		private final GadgetBase gadget;
+
+		private Entry(Contraption contraption, GadgetBase gadget) {
+			this.contraption = contraption;
+			this.gadget = gadget;
+		}
+
+		public Contraption getContraption() {
+			return contraption;
+		}
+
+		/**
+		 * @return the Gadget, or null for a Pipe block.
+		 */
+		public GadgetBase getGadget() {
+			return gadget;
+		}
+	}
+
+	private static class Indexed {
+		private final UUID world;
+		private final List<Long> keys;
+
+		private Indexed(UUID world, List<Long> keys) {
+			this.world = world;
+			this.keys = keys;
+		}
+	}
+}
@@ -0,0 +1,260 @@
+package com.programmerdan.minecraft.contraptions.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.DoubleChest;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.gadget.InventoryBacked;
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+import com.programmerdan.minecraft.contraptions.trace.TraceWriter;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+import com.programmerdan.minecraft.contraptions.util.LocationKey;
+
+/**
+ * Feeds changes players and vanilla hoppers make to Gadget inventories back into the
+ * engine, without re-solving on every click.
+ * <br>
+ * Click, drag and item move events only note which inventories were touched. Once per
+ * tick, after the changes have landed, each touched inventory that backs an
+ * {@link InventoryBacked} Gadget is hashed; only if the hash differs from the last one
+ * seen are its contents read, and what changed since the last read added to the Gadget's
+ * storage, the Gadget marked dirty, and its Contraption {@link Contraption#wake() woken}.
+ * However many players are busy in a storage room, each Gadget is read at most once a
+ * tick, and not at all if they put back what they took.
+ * <br>
+ * Only the change is handed on, never the contents: under scheduled updates the Gadget's
+ * storage may be behind, and the Contraption is brought up to the current tick first,
+ * so flows before the edit settle against the old contents. Overwriting storage with
+ * contents read before that would undo those flows. The first time a Gadget is read, its
+ * storage as last updated stands in for the last read.
+ * <br>
+ * Reading the inventory happens on the main thread, finding its Gadget through the
+ * {@link GadgetIndex} without locking. Handing the change to the Gadget needs the
+ * Contraption's lock, so is done in order on a thread of its own, and never holds up the
+ * tick; there the Gadget is looked up again, and its new storage recorded to any
+ * running trace.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class InventoryTracker implements Listener {
+	private final Plugin plugin;
+	private final MonitorPool pool;
+	private final Logger logger;
+	private final ExecutorService applier = Executors.newSingleThreadExecutor();
+
+	private final Set<Inventory> touched = new LinkedHashSet<Inventory>();
+	private final Map<GadgetBase, Integer> hashes = new WeakHashMap<GadgetBase, Integer>();
+	private final Map<GadgetBase, List<AdvItemStack>> read = new WeakHashMap<GadgetBase, List<AdvItemStack>>();
+	private boolean pending;
+
+	public InventoryTracker(Plugin plugin, MonitorPool pool, Logger logger) {
+		this.plugin = plugin;
+		this.pool = pool;
+		this.logger = logger;
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onInventoryClick(InventoryClickEvent event) {
+		// shift clicks in the player's half still move items into the top inventory.
+		touch(event.getView().getTopInventory());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onInventoryDrag(InventoryDragEvent event) {
+		touch(event.getView().getTopInventory());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+		touch(event.getSource());
+		touch(event.getDestination());
+	}
+
+	private void touch(Inventory inventory) {
+		if (inventory == null || inventory.getHolder() == null) {
+			return;
+		}
+		touched.add(inventory);
+		if (!pending) {
+			pending = true;
+			// events fire before the change is made; look once everything this tick has landed.
+			Bukkit.getScheduler().runTask(plugin, new Runnable() {
+				@Override
+				public void run() {
+					flush();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Forgets what was last read from <code>gadget</code>'s inventory, e.g. because the
+	 * Gadget wrote its storage back into it. The next change is then taken against its
+	 * storage. Main thread only.
+	 */
+	public void forget(GadgetBase gadget) {
+		hashes.remove(gadget);
+		read.remove(gadget);
+	}
+
+	/**
+	 * Checks every inventory touched since the last flush, and hands what changed in
+	 * each to its Gadget.
+	 */
+	void flush() {
+		pending = false;
+		List<Location> locations = new ArrayList<Location>();
+		for (Inventory inventory : touched) {
+			locations(inventory.getHolder(), locations);
+		}
+		touched.clear();
+		GadgetIndex index = pool.getIndex();
+		for (Location location : locations) {
+			GadgetIndex.Entry entry = index.lookup(location);
+			GadgetBase gadget = entry == null ? null : entry.getGadget();
+			if (!(gadget instanceof InventoryBacked)) {
+				continue;
+			}
+			Inventory inventory = ((InventoryBacked) gadget).getBackingInventory();
+			if (inventory == null) {
+				continue;
+			}
+			ItemStack[] contents = inventory.getContents();
+			int hash = hash(contents);
+			Integer previous = hashes.get(gadget);
+			if (previous != null && previous == hash) {
+				continue;
+			}
+			hashes.put(gadget, hash);
+			final Contraption contraption = entry.getContraption();
+			final long key = LocationKey.of(location);
+			final List<AdvItemStack> stacks = stacks(contents);
+			List<AdvItemStack> last = read.put(gadget, stacks);
+			final List<AdvItemStack> change = last == null ? null : AdvItemStack.difference(stacks, last);
+			if (change != null && change.isEmpty()) {
+				continue;
+			}
+			applier.execute(new Runnable() {
+				@Override
+				public void run() {
+					apply(contraption, key, stacks, change);
+				}
+			});
+		}
+	}
+
+	/**
+	 * @param stacks the inventory's contents as read
+	 * @param change what changed since the last read, or null if this is the first
+	 */
+	private void apply(Contraption contraption, long key, List<AdvItemStack> stacks, List<AdvItemStack> change) {
+		try {
+			ContraptionMonitor monitor = pool.getMonitor(contraption);
+			synchronized (contraption) {
+				GadgetBase gadget = contraption.getGraph().getGadget(key);
+				if (!(gadget instanceof InventoryBacked)) {
+					return;
+				}
+				if (change == null) {
+					// before catching up; storage is as of the last update, which the inventory showed.
+					change = AdvItemStack.difference(stacks, gadget.getStorage());
+				}
+				if (change.isEmpty()) {
+					return;
+				}
+				if (monitor != null) {
+					monitor.bringUpTo(contraption, MonitorPool.currentTick());
+				}
+				((InventoryBacked) gadget).adjustInventory(change);
+				gadget.markDirty();
+				TraceWriter trace = TraceWriter.current();
+				if (trace != null) {
+					trace.storage(contraption, key, gadget.getStorage());
+				}
+			}
+			contraption.wake();
+		} catch (RuntimeException e) {
+			logger.log(Level.WARNING, "Contraption " + contraption.getId() + " failed to take an inventory change", e);
+		}
+	}
+
+	/**
+	 * Stops handing changes to Gadgets, finishing any already read.
+	 */
+	public void shutdown() {
+		applier.shutdown();
+		try {
+			applier.awaitTermination(5L, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void locations(InventoryHolder holder, List<Location> locations) {
+		if (holder instanceof DoubleChest) {
+			locations(((DoubleChest) holder).getLeftSide(), locations);
+			locations(((DoubleChest) holder).getRightSide(), locations);
+		} else if (holder instanceof BlockState) {
+			locations.add(((BlockState) holder).getLocation());
+		}
+	}
+
+	/**
+	 * A cheap hash of what an inventory holds, slot by slot; item meta only counts when
+	 * there is some.
+	 */
+	static int hash(ItemStack[] contents) {
+		int hash = 1;
+		for (ItemStack item : contents) {
+			if (item == null) {
+				hash = 31 * hash;
+				continue;
+			}
+			hash = 31 * hash + item.getType().hashCode();
+			hash = 31 * hash + item.getDurability();
+			hash = 31 * hash + item.getAmount();
+			if (item.hasItemMeta()) {
+				hash = 31 * hash + item.getItemMeta().hashCode();
+			}
+		}
+		return hash;
+	}
+
+	private static List<AdvItemStack> stacks(ItemStack[] contents) {
+		List<AdvItemStack> stacks = new ArrayList<AdvItemStack>(contents.length);
+		for (ItemStack item : contents) {
+			if (item != null && item.getAmount() > 0) {
+				ItemStack type = item.clone();
+				type.setAmount(1);
+				stacks.add(new AdvItemStack(type, item.getAmount()));
+			}
+		}
+		return stacks.isEmpty() ? Collections.<AdvItemStack>emptyList() : AdvItemStack.merge(stacks);
+	}
+}
@@ -0,0 +1,274 @@
+package com.programmerdan.minecraft.contraptions.engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.programmerdan.minecraft.contraptions.ContraptionsConfiguration.MonitorBase;
+import com.programmerdan.minecraft.contraptions.UpdateMode;
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+import com.programmerdan.minecraft.contraptions.rate.FixedPoint;
+import com.programmerdan.minecraft.contraptions.trace.TraceWriter;
+
+/**
+ * The set of {@link ContraptionMonitor}s, and the partitioning of Contraptions between
+ * them per the configured {@link com.programmerdan.minecraft.contraptions.MonitorStrategy}.
+ * 
+ * Can be reconfigured live: monitors are rebuilt to the new settings and every
+ * Contraption re-partitioned across them, without a restart. A Contraption mid-update
+ * in an old monitor finishes first, as updates hold the Contraption's lock.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class MonitorPool {
+	/**
+	 * Milliseconds per server tick; monitors run off the server thread, on wall time.
+	 */
+	public static final long TICK_MILLIS = 50L;
+
+	/**
+	 * @return the engine's clock: wall time, in ticks.
+	 */
+	public static long currentTick() {
+		return System.currentTimeMillis() / TICK_MILLIS;
+	}
+
+	private FlowSolver solver;
+	private ForkJoinPool parallel;
+	private final Map<Contraption, ContraptionMonitor> partition = new LinkedHashMap<Contraption, ContraptionMonitor>();
+	private final Random random = new Random();
+	private final ScheduledThreadPoolExecutor executor;
+	private final Logger logger;
+	private final FootprintAudit footprint;
+	private final GadgetIndex index = new GadgetIndex();
+	private final ChunkTracker chunks = new ChunkTracker();
+	private ScheduledFuture<?> audit;
+	private List<ContraptionMonitor> monitors = new ArrayList<ContraptionMonitor>();
+	private MonitorBase settings;
+	private int next;
+
+	public MonitorPool(MonitorBase settings, Logger logger) {
+		this.logger = logger;
+		this.executor = new ScheduledThreadPoolExecutor(settings.getCount());
+		this.footprint = new FootprintAudit(this, logger);
+		reconfigure(settings);
+	}
+
+	public synchronized MonitorBase getSettings() {
+		return settings;
+	}
+
+	public synchronized List<ContraptionMonitor> getMonitors() {
+		return new ArrayList<ContraptionMonitor>(monitors);
+	}
+
+	/**
+	 * @return the footprint audit, holding the heap estimates from its last run.
+	 */
+	public FootprintAudit getFootprint() {
+		return footprint;
+	}
+
+	/**
+	 * @return the loaded chunks, as monitors see them; register it for chunk events.
+	 */
+	public ChunkTracker getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * @return where each Contraption's Gadgets are, for looking them up by block.
+	 */
+	public GadgetIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Re-indexes the Gadgets of <code>contraption</code>; call after replacing its graph.
+	 */
+	public synchronized void reindex(Contraption contraption) {
+		if (partition.containsKey(contraption)) {
+			index.add(contraption);
+		}
+	}
+
+	/**
+	 * @return every Contraption in the pool.
+	 */
+	public synchronized List<Contraption> getContraptions() {
+		return new ArrayList<Contraption>(partition.keySet());
+	}
+
+	/**
+	 * @return the Contraption with this id, or null if there is none in the pool.
+	 */
+	public synchronized Contraption getContraption(long id) {
+		for (Contraption contraption : partition.keySet()) {
+			if (contraption.getId() == id) {
+				return contraption;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the monitor updating <code>contraption</code>, or null if it isn't running.
+	 */
+	public synchronized ContraptionMonitor getMonitor(Contraption contraption) {
+		return partition.get(contraption);
+	}
+
+	public synchronized void add(Contraption contraption) {
+		if (!partition.containsKey(contraption)) {
+			assign(contraption);
+			index.add(contraption);
+			TraceWriter trace = TraceWriter.current();
+			if (trace != null) {
+				synchronized (contraption) {
+					trace.contraption(contraption);
+				}
+			}
+		}
+	}
+
+	public synchronized void remove(Contraption contraption) {
+		ContraptionMonitor monitor = partition.remove(contraption);
+		if (monitor != null) {
+			monitor.unassign(contraption);
+			index.remove(contraption);
+			TraceWriter trace = TraceWriter.current();
+			if (trace != null) {
+				trace.remove(contraption);
+			}
+		}
+	}
+
+	/**
+	 * Starts recording to <code>trace</code>, with a snapshot of every Contraption already
+	 * running so the trace can be replayed on its own.
+	 * 
+	 * @param trace the trace to record to
+	 */
+	public synchronized void startTrace(TraceWriter trace) {
+		TraceWriter.setCurrent(trace);
+		for (Contraption contraption : partition.keySet()) {
+			synchronized (contraption) {
+				trace.contraption(contraption);
+			}
+		}
+	}
+
+	/**
+	 * Swaps in new monitor settings: resizes the pool, rebuilds the monitors, and
+	 * re-partitions every known Contraption across them.
+	 * 
+	 * @param settings the new settings
+	 */
+	public synchronized void reconfigure(MonitorBase settings) {
+		for (ContraptionMonitor monitor : monitors) {
+			monitor.cancel();
+		}
+		if (audit != null) {
+			audit.cancel(false);
+			audit = null;
+		}
+		this.settings = settings;
+		executor.setCorePoolSize(settings.getCount());
+		if (parallel != null && parallel.getParallelism() != settings.getParallelism()) {
+			parallel.shutdown();
+			parallel = null;
+		}
+		if (parallel == null && settings.getParallelism() > 0) {
+			parallel = new ForkJoinPool(settings.getParallelism());
+		}
+		solver = new FlowSolver(parallel, settings.getParallelThreshold(),
+				FixedPoint.forBits(settings.getFixedPointBits()));
+
+		monitors = new ArrayList<ContraptionMonitor>(settings.getCount());
+		for (int i = 0; i < settings.getCount(); i++) {
+			monitors.add(new ContraptionMonitor(settings, solver, chunks, logger));
+		}
+		List<Contraption> all = new ArrayList<Contraption>(partition.keySet());
+		partition.clear();
+		next = 0;
+		for (Contraption contraption : all) {
+			assign(contraption);
+		}
+
+		for (int i = 0; i < monitors.size(); i++) {
+			ContraptionMonitor monitor = monitors.get(i);
+			long period = monitor.getPeriod() * TICK_MILLIS;
+			// stagger monitors across the period so they don't all wake together.
+			long delay = period * i / monitors.size();
+			monitor.setFuture(executor.scheduleAtFixedRate(monitor, delay, period, TimeUnit.MILLISECONDS));
+		}
+		if (settings.getFootprintInterval() > 0L) {
+			long interval = settings.getFootprintInterval() * TICK_MILLIS;
+			audit = executor.scheduleWithFixedDelay(footprint, interval, interval, TimeUnit.MILLISECONDS);
+		} else {
+			// without audits, nothing would ever lift a cap already applied.
+			for (Contraption contraption : partition.keySet()) {
+				contraption.setUpdateMode(UpdateMode.normal);
+			}
+		}
+		logger.info("Contraption monitors: " + monitors.size() + " running " + settings.getStrategy()
+				+ (settings.isScheduledUpdates() ? " as needed, at most every " : " every ")
+				+ settings.getUpdateFrequency() + " ticks over " + partition.size() + " contraptions");
+	}
+
+	/**
+	 * Stops every monitor, waiting briefly for updates in progress to finish.
+	 */
+	public synchronized void shutdown() {
+		for (ContraptionMonitor monitor : monitors) {
+			monitor.cancel();
+		}
+		if (audit != null) {
+			audit.cancel(false);
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(5L, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (parallel != null) {
+			parallel.shutdown();
+		}
+	}
+
+	private void assign(Contraption contraption) {
+		ContraptionMonitor monitor;
+		switch (settings.getStrategy()) {
+		case random:
+			monitor = monitors.get(random.nextInt(monitors.size()));
+			break;
+		case round_robin_fair:
+			monitor = monitors.get(0);
+			int least = Integer.MAX_VALUE;
+			for (ContraptionMonitor candidate : monitors) {
+				int load = candidate.getLoad();
+				if (load < least) {
+					least = load;
+					monitor = candidate;
+				}
+			}
+			break;
+		case round_robin:
+		default:
+			monitor = monitors.get(next);
+			next = (next + 1) % monitors.size();
+			break;
+		}
+		monitor.assign(contraption);
+		partition.put(contraption, monitor);
+	}
+}
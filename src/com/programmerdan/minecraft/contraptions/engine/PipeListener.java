@@ -0,0 +1,57 @@
+package com.programmerdan.minecraft.contraptions.engine;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.plugin.Plugin;
+
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+import com.programmerdan.minecraft.contraptions.graph.ContraptionGraph;
+import com.programmerdan.minecraft.contraptions.util.LocationKey;
+
+/**
+ * Takes broken Pipe blocks out of their Contraption's graph, via
+ * {@link Contraption#breakPipe(long)}; which also records the break to any running trace
+ * and wakes the Contraption.
+ * <br>
+ * The block is found through the {@link GadgetIndex} without locking. The break itself
+ * needs the Contraption's lock, so is applied off the main thread, and the Contraption
+ * re-indexed after.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class PipeListener implements Listener {
+	private final Plugin plugin;
+	private final MonitorPool pool;
+
+	public PipeListener(Plugin plugin, MonitorPool pool) {
+		this.plugin = plugin;
+		this.pool = pool;
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockBreak(BlockBreakEvent event) {
+		final Contraption contraption = pool.getIndex().find(event.getBlock().getLocation());
+		if (contraption == null) {
+			return;
+		}
+		final long key = LocationKey.of(event.getBlock());
+		Bukkit.getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+			@Override
+			public void run() {
+				synchronized (contraption) {
+					ContraptionGraph graph = contraption.getGraph();
+					// a broken Gadget needs the graph rebuilt, which is not done here.
+					if (graph.getGadget(key) != null || !graph.contains(key)) {
+						return;
+					}
+					contraption.breakPipe(key);
+				}
+				pool.reindex(contraption);
+			}
+		});
+	}
+}
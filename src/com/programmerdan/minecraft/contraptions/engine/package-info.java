@@ -0,0 +1,10 @@
+/**
+ * Runs Contraptions: solving flows across a Contraption's graph, and the monitors
+ * that decide when each Contraption is brought up to date.
+ * 
+ * Nothing here touches the server directly, so it can be driven without one.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+package com.programmerdan.minecraft.contraptions.engine;
@@ -8,6 +8,7 @@ import org.bukkit.Material;
 import com.programmerdan.minecraft.contraptions.rate.PipedRate;
 import com.programmerdan.minecraft.contraptions.time.TimeMeasure;
 import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+import com.programmerdan.minecraft.contraptions.util.Footprint;
 
 /**
  * Base implementation of GadgetInput and GadgetOutput contracts, including
@@ -25,6 +26,8 @@ import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
  * Note that there will be some special case gadgets that act as pure passthroughs,
  * such as Pipes, and I'm still trying to figure out exactly how to represent them
  * as they could become effective "forwarders" of pushes into pulls, and reverse...
+ * For now, Pipes are not Gadgets at all; runs of them are collapsed into a single
+ * {@link com.programmerdan.minecraft.contraptions.graph.PipeEdge} between Gadgets.
  * 
  * Much TODO here, but the framing in code has begun.
  *
@@ -32,6 +35,88 @@ import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
  * @since 1.0.0 September 2015
  */
 public abstract class GadgetBase implements GadgetInput, GadgetOutput {
+
+	private final Location location;
+	private final Material type;
+	private Wear wear;
+	private boolean dirty = true;
+
+	protected GadgetBase(Location location, Material type) {
+		this.location = location;
+		this.type = type;
+	}
+
+	/**
+	 * @return the location of the block backing this Gadget.
+	 */
+	public Location getLocation() {
+		return location;
+	}
+
+	/**
+	 * @return the Material of the block backing this Gadget.
+	 */
+	public Material getType() {
+		return type;
+	}
+
+	/**
+	 * @return this Gadget's decay state, or null if it doesn't wear.
+	 */
+	public Wear getWear() {
+		return wear;
+	}
+
+	public void setWear(Wear wear) {
+		this.wear = wear;
+	}
+
+	/**
+	 * @return the configured spec this Gadget was built from, e.g. the name of the recipe
+	 *     a Converter runs; or null if its kind alone says what it is.
+	 */
+	public String getSpec() {
+		return null;
+	}
+
+	/**
+	 * Estimates the heap this Gadget retains, for footprint accounting. Gadgets holding
+	 * storage or other state of their own should add it to this.
+	 * 
+	 * @return estimated bytes retained.
+	 */
+	public long getFootprint() {
+		long bytes = Footprint.OBJECT + 4 * Footprint.REFERENCE;
+		if (location != null) {
+			bytes += Footprint.OBJECT + 6 * 8L;
+		}
+		if (wear != null) {
+			bytes += Footprint.OBJECT + 6 * 8L;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Notes that this Gadget's state changed since it was last checkpointed. The engine
+	 * marks Gadgets whose storage it adjusts; anything else changing a Gadget, e.g. a
+	 * player editing its inventory, should mark it too. Only touched under the
+	 * Contraption's lock.
+	 */
+	public void markDirty() {
+		dirty = true;
+	}
+
+	/**
+	 * @return true if this Gadget changed since it was last checkpointed.
+	 */
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	public void clearDirty() {
+		dirty = false;
+	}
+
 	/**
 	 * Indicator if this Gadget has a storage component or not.
 	 * @return true if this Gadget has public storage, false otherwise.
@@ -65,6 +150,9 @@ public abstract class GadgetBase implements GadgetInput, GadgetOutput {
 	 * Gets the *instantaneous* storage as it stands after any in-progress adjustments resolve.
 	 * This may block depending on implementations.
 	 * 
+	 * Implementations should back storage with an {@link ItemStore} and return its
+	 * shared {@link ItemStore#snapshot()}, rather than build a fresh list each call.
+	 * 
 	 * @return List of AdvItemStack objects indicating the current storage.
 	 */
 	public abstract List<AdvItemStack> getStorage();
@@ -135,7 +223,4 @@ public abstract class GadgetBase implements GadgetInput, GadgetOutput {
 	 *     * always active?
 	 *     * split the difference? could need both.
 	 */
-	
-	private final Location location;
-	private final Material type;
 }
@@ -0,0 +1,42 @@
+package com.programmerdan.minecraft.contraptions.gadget;
+
+import java.util.List;
+
+import org.bukkit.inventory.Inventory;
+
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+
+/**
+ * A Gadget whose storage mirrors a real block inventory, which players and vanilla
+ * hoppers change outside the engine. The
+ * {@link com.programmerdan.minecraft.contraptions.engine.InventoryTracker} notices such
+ * changes and feeds what changed back in.
+ * <br>
+ * A Gadget that writes its storage back into its inventory should then
+ * {@link com.programmerdan.minecraft.contraptions.engine.InventoryTracker#forget forget}
+ * itself with the tracker, so what it wrote isn't taken for a player's change.
+ * <br>
+ * No Gadget implements this yet; until one does, the tracker finds nothing to read.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public interface InventoryBacked {
+	/**
+	 * Gets the inventory this Gadget mirrors; for half of a double chest, just its own
+	 * half. Main thread only.
+	 * 
+	 * @return the inventory, or null if its block isn't loaded.
+	 */
+	public Inventory getBackingInventory();
+
+	/**
+	 * Adds what changed in its inventory outside the engine to this Gadget's storage.
+	 * Called under the Contraption's lock, once the Contraption is up to date; adding
+	 * stops when full, removing at empty.
+	 * 
+	 * @param change one stack per item kind and meta changed: positive sizes were put
+	 *     in, negative taken out
+	 */
+	public void adjustInventory(List<AdvItemStack> change);
+}
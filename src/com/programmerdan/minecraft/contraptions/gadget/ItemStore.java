@@ -0,0 +1,350 @@
+package com.programmerdan.minecraft.contraptions.gadget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+import com.programmerdan.minecraft.contraptions.util.AdvancedMeta;
+import com.programmerdan.minecraft.contraptions.util.Footprint;
+
+/**
+ * Bounded storage for Gadgets, counted per item kind and {@link AdvancedMeta}. Each
+ * distinct (item, meta) gets a slot with a primitive count; adding and removing are a
+ * single hash lookup, and the running total makes checking capacity free, however many
+ * kinds of item are held.
+ * <br>
+ * {@link #snapshot()} is built at most once per change and shared until the next, so
+ * reading storage repeatedly between adjustments costs nothing. Metas are interned, so
+ * stacks with equivalent metas always land in the same slot.
+ * <br>
+ * Not thread safe; Gadget storage is only touched under its Contraption's lock.
+ *
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class ItemStore {
+	/**
+	 * Counts at or below this are treated as empty, to keep rounding dust out of storage.
+	 */
+	public static final double EPSILON = 1e-9;
+
+	private final double capacity;
+	private final Map<Key, Integer> slots;
+	private Key[] keys;
+	private double[] counts;
+	private int[] free;
+	private int freeCount;
+	private int used;
+	private int size;
+	private double total;
+	private List<AdvItemStack> snapshot;
+	private Map<Key, Double> undo;
+	private List<AdvItemStack> markedSnapshot;
+	private double markedTotal;
+	private boolean marking;
+
+	/**
+	 * @param capacity the most items held, across all kinds
+	 */
+	public ItemStore(double capacity) {
+		this.capacity = capacity;
+		this.slots = new HashMap<Key, Integer>();
+		this.keys = new Key[8];
+		this.counts = new double[8];
+		this.free = new int[8];
+	}
+
+	/**
+	 * Gets the key for a stack's item kind and meta; its size is ignored.
+	 *
+	 * @throws IllegalArgumentException for a wildcard stack, which has no item kind.
+	 */
+	public static Key keyOf(AdvItemStack stack) {
+		if (stack.getType() == null) {
+			throw new IllegalArgumentException("Wildcard stacks can't be stored");
+		}
+		return new Key(stack.getType(), stack.getMeta());
+	}
+
+	/**
+	 * @return the key for plain <code>material</code>, without meta.
+	 */
+	public static Key keyOf(Material material) {
+		return new Key(new ItemStack(material), null);
+	}
+
+	public double getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return items held, across all kinds.
+	 */
+	public double getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return room left before this is full.
+	 */
+	public double getFree() {
+		return Math.max(0.0d, capacity - total);
+	}
+
+	public boolean fits(double amount) {
+		return amount <= getFree();
+	}
+
+	/**
+	 * @return the number of distinct kinds held.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public double get(Key key) {
+		Integer slot = slots.get(key);
+		return slot == null ? 0.0d : counts[slot];
+	}
+
+	public double get(AdvItemStack stack) {
+		return stack.getType() == null ? 0.0d : get(keyOf(stack));
+	}
+
+	/**
+	 * Adds to, or with a negative <code>amount</code> removes from, the count of
+	 * <code>key</code>. Adding stops when full; removing stops at empty.
+	 *
+	 * @return the change actually made.
+	 */
+	public double add(Key key, double amount) {
+		Integer slot = slots.get(key);
+		double current = slot == null ? 0.0d : counts[slot];
+		double change = amount > 0.0d ? Math.min(amount, getFree()) : Math.max(amount, -current);
+		if (change == 0.0d) {
+			return 0.0d;
+		}
+		if (marking && !undo.containsKey(key)) {
+			undo.put(slot == null ? new Key(key.item.clone(), key.meta) : keys[slot], current);
+		}
+		double next = current + change;
+		if (next <= EPSILON) {
+			if (slot != null) {
+				release(key, slot);
+			}
+			change = -current;
+		} else if (slot == null) {
+			counts[allocate(key)] = next;
+		} else {
+			counts[slot] = next;
+		}
+		total += change;
+		if (size == 0) {
+			total = 0.0d;
+		}
+		snapshot = null;
+		return change;
+	}
+
+	/**
+	 * @return the amount of <code>stack</code> actually added.
+	 */
+	public double add(AdvItemStack stack) {
+		return add(keyOf(stack), stack.getSize());
+	}
+
+	/**
+	 * @return the amount of <code>stack</code> actually removed.
+	 */
+	public double remove(AdvItemStack stack) {
+		return -add(keyOf(stack), -stack.getSize());
+	}
+
+	public void clear() {
+		slots.clear();
+		Arrays.fill(keys, 0, used, null);
+		used = 0;
+		freeCount = 0;
+		size = 0;
+		total = 0.0d;
+		snapshot = null;
+	}
+
+	/**
+	 * Replaces the contents with <code>stacks</code>, as far as they fit. Wildcard stacks
+	 * are skipped.
+	 */
+	public void setAll(List<AdvItemStack> stacks) {
+		clear();
+		for (AdvItemStack stack : stacks) {
+			if (stack.getType() != null) {
+				add(stack);
+			}
+		}
+	}
+
+	/**
+	 * Gets the contents, one stack per kind. Shared until the next change; do not modify
+	 * the list's stacks.
+	 *
+	 * @return an unmodifiable view of the contents.
+	 */
+	public List<AdvItemStack> snapshot() {
+		if (snapshot == null) {
+			List<AdvItemStack> stacks = new ArrayList<AdvItemStack>(size);
+			for (int i = 0; i < used; i++) {
+				if (keys[i] != null) {
+					stacks.add(new AdvItemStack(keys[i].item, counts[i], keys[i].meta));
+				}
+			}
+			snapshot = Collections.unmodifiableList(stacks);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return estimated bytes of heap retained, including the cached snapshot.
+	 */
+	public long getFootprint() {
+		long bytes = Footprint.OBJECT + 10 * Footprint.REFERENCE
+				+ Footprint.array(keys.length, Footprint.REFERENCE)
+				+ Footprint.array(counts.length, 8L)
+				+ Footprint.array(free.length, 4L)
+				// slot map entry with boxed slot, key, and the key's own ItemStack.
+				+ size * (Footprint.MAP_ENTRY + Footprint.OBJECT + 3 * Footprint.REFERENCE + Footprint.ITEM_STACK);
+		if (snapshot != null) {
+			bytes += Footprint.array(size, Footprint.REFERENCE)
+					+ size * (Footprint.OBJECT + 3 * Footprint.REFERENCE + Footprint.ITEM_STACK);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Starts recording the prior count of each kind {@link #add(Key, double)} touches, so
+	 * {@link #rollback()} can undo an emulated adjustment by resetting just those kinds.
+	 */
+	public void mark() {
+		if (undo == null) {
+			undo = new HashMap<Key, Double>();
+		}
+		undo.clear();
+		markedSnapshot = snapshot;
+		markedTotal = total;
+		marking = true;
+	}
+
+	/**
+	 * Puts back every count changed since {@link #mark()}. Only adds are recorded; don't
+	 * {@link #clear()} or {@link #setAll(List)} in between.
+	 */
+	public void rollback() {
+		marking = false;
+		for (Map.Entry<Key, Double> entry : undo.entrySet()) {
+			reset(entry.getKey(), entry.getValue());
+		}
+		undo.clear();
+		total = markedTotal;
+		snapshot = markedSnapshot;
+		markedSnapshot = null;
+	}
+
+	private void reset(Key key, double count) {
+		Integer slot = slots.get(key);
+		if (count <= EPSILON) {
+			if (slot != null) {
+				release(key, slot);
+			}
+		} else if (slot == null) {
+			counts[allocate(key)] = count;
+		} else {
+			counts[slot] = count;
+		}
+	}
+
+	private int allocate(Key key) {
+		// keep a copy of our own; the caller's ItemStack may change later.
+		key = new Key(key.item.clone(), key.meta);
+		int slot;
+		if (freeCount > 0) {
+			slot = free[--freeCount];
+		} else {
+			if (used == keys.length) {
+				keys = Arrays.copyOf(keys, used * 2);
+				counts = Arrays.copyOf(counts, used * 2);
+				free = Arrays.copyOf(free, used * 2);
+			}
+			slot = used++;
+		}
+		keys[slot] = key;
+		slots.put(key, slot);
+		size++;
+		return slot;
+	}
+
+	private void release(Key key, int slot) {
+		slots.remove(key);
+		keys[slot] = null;
+		counts[slot] = 0.0d;
+		free[freeCount++] = slot;
+		size--;
+	}
+
+	/**
+	 * An item kind and meta; equal keys share a slot. Metas are compared by identity,
+	 * as they are interned.
+	 */
+	public static final class Key {
+		private final ItemStack item;
+		private final AdvancedMeta meta;
+		private final int hash;
+
+		private Key(ItemStack item, AdvancedMeta meta) {
+			this.item = item;
+			this.meta = meta;
+			this.hash = (item.getType().hashCode() * 31 + item.getDurability()) * 31
+					+ System.identityHashCode(meta);
+		}
+
+		public ItemStack getItem() {
+			return item;
+		}
+
+		public AdvancedMeta getMeta() {
+			return meta;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			if (hash != other.hash || meta != other.meta || item.getType() != other.item.getType()
+					|| item.getDurability() != other.item.getDurability()) {
+				return false;
+			}
+			// headless, there is no item factory to compare item meta with.
+			return Bukkit.getServer() == null || item.isSimilar(other.item);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
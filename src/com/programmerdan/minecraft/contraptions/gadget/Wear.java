@@ -0,0 +1,165 @@
+package com.programmerdan.minecraft.contraptions.gadget;
+
+/**
+ * Time-based decay of a single Gadget, kept as a (last settled time, health, rate)
+ * tuple and only brought up to date when read. Nothing touches a Gadget on a schedule
+ * just to subtract wear.
+ * 
+ * Repair arrives through the owning Contraption as a running per-Gadget credit index
+ * (see {@link com.programmerdan.minecraft.contraptions.graph.Contraption#getRepairIndex(long)}).
+ * Each Wear remembers the index it last settled against, and on settle takes the
+ * difference as its share. Decay and repair within one settle interval are netted
+ * against each other; a Gadget that had fully decayed by its last settle stays
+ * decayed until repaired directly via {@link #repair(double, long, double)}.
+ * 
+ * Times are in milliseconds; the rate is health lost per millisecond.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class Wear {
+	private final double maxHealth;
+	private double health;
+	private double rate;
+	private long settled;
+	private double creditIndex;
+
+	/**
+	 * @param maxHealth the health of a new or fully repaired Gadget
+	 * @param rate health lost per millisecond
+	 * @param now the current time
+	 */
+	public Wear(double maxHealth, double rate, long now) {
+		this.maxHealth = maxHealth;
+		this.health = maxHealth;
+		this.rate = rate;
+		this.settled = now;
+		this.creditIndex = 0.0d;
+	}
+
+	/**
+	 * Rebuilds a Wear as it was last settled, e.g. from a checkpoint.
+	 * 
+	 * @param health health as of <code>settled</code>
+	 * @param settled when it was last settled
+	 * @param creditIndex the owning Contraption's repair index it last settled against
+	 */
+	public Wear(double maxHealth, double health, double rate, long settled, double creditIndex) {
+		this.maxHealth = maxHealth;
+		this.health = health;
+		this.rate = rate;
+		this.settled = settled;
+		this.creditIndex = creditIndex;
+	}
+
+	public double getMaxHealth() {
+		return maxHealth;
+	}
+
+	/**
+	 * @param now the current time
+	 * @param index the owning Contraption's repair index at <code>now</code>
+	 * @return health as of <code>now</code>
+	 */
+	public synchronized double getHealth(long now, double index) {
+		settle(now, index);
+		return health;
+	}
+
+	/**
+	 * @return health as of the last settle, without settling; see {@link #getSettled()}.
+	 */
+	public synchronized double getSettledHealth() {
+		return health;
+	}
+
+	/**
+	 * @return when this was last settled.
+	 */
+	public synchronized long getSettled() {
+		return settled;
+	}
+
+	/**
+	 * @return the repair index this last settled against.
+	 */
+	public synchronized double getCreditIndex() {
+		return creditIndex;
+	}
+
+	public synchronized boolean isDecayed(long now, double index) {
+		return getHealth(now, index) <= 0.0d;
+	}
+
+	public synchronized double getRate() {
+		return rate;
+	}
+
+	/**
+	 * Changes the decay rate from <code>now</code> on; wear up to now is settled at the old rate.
+	 */
+	public synchronized void setRate(double rate, long now, double index) {
+		settle(now, index);
+		this.rate = rate;
+	}
+
+	/**
+	 * Starts taking repair credit from a Contraption, without claiming any credit posted
+	 * before joining.
+	 * 
+	 * @param now the current time
+	 * @param index the joined Contraption's repair index at <code>now</code>
+	 */
+	public synchronized void join(long now, double index) {
+		settle(now, this.creditIndex);
+		this.creditIndex = index;
+	}
+
+	/**
+	 * Stops taking repair credit from a Contraption, claiming whatever share was owed up
+	 * to <code>now</code>.
+	 * 
+	 * @param now the current time
+	 * @param index the departed Contraption's repair index at <code>now</code>
+	 */
+	public synchronized void leave(long now, double index) {
+		settle(now, index);
+		this.creditIndex = 0.0d;
+	}
+
+	/**
+	 * Repairs this Gadget directly, e.g. by a player paying a local cost. Unlike Contraption
+	 * repair credit, this can revive a fully decayed Gadget.
+	 */
+	public synchronized void repair(double amount, long now, double index) {
+		settle(now, index);
+		health = Math.min(maxHealth, health + amount);
+	}
+
+	/**
+	 * Gets how long until this Gadget fully decays, assuming no further repair.
+	 * 
+	 * @return milliseconds until decayed, {@link Long#MAX_VALUE} if it never will, or 0 if already decayed.
+	 */
+	public synchronized long timeToDecay(long now, double index) {
+		settle(now, index);
+		if (health <= 0.0d) {
+			return 0L;
+		}
+		if (rate <= 0.0d) {
+			return Long.MAX_VALUE;
+		}
+		double remaining = Math.ceil(health / rate);
+		return remaining >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) remaining;
+	}
+
+	private void settle(long now, double index) {
+		if (health > 0.0d) {
+			long elapsed = Math.max(0L, now - settled);
+			health = Math.max(0.0d, Math.min(maxHealth,
+					health + (index - creditIndex) - rate * elapsed));
+		}
+		settled = Math.max(settled, now);
+		creditIndex = index;
+	}
+}
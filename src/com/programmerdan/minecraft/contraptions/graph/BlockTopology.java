@@ -0,0 +1,46 @@
+package com.programmerdan.minecraft.contraptions.graph;
+
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.util.LocationKey;
+
+/**
+ * The view of a single world that {@link ContraptionGraphBuilder} walks. All blocks
+ * are addressed by packed key (see {@link LocationKey}).
+ * 
+ * Kept as an interface so graphs can be built without a live server behind them.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public interface BlockTopology {
+
+	/**
+	 * @param key packed block location
+	 * @return the Gadget backed by this block, or null if there isn't one.
+	 */
+	public GadgetBase getGadget(long key);
+
+	/**
+	 * @param key packed block location
+	 * @return true if this block is a Pipe.
+	 */
+	public boolean isPipe(long key);
+
+	/**
+	 * Gets the throughput of a single Pipe block, in items per single TimeMeasure unit.
+	 * 
+	 * @param key packed block location of a Pipe
+	 * @return the Pipe's capacity
+	 */
+	public double getPipeCapacity(long key);
+
+	/**
+	 * Checks if two adjacent blocks are permitted to be part of the same Contraption,
+	 * e.g. because they are reinforced to the same group.
+	 * 
+	 * @param a packed block location
+	 * @param b packed block location
+	 * @return true if an edge may join these blocks.
+	 */
+	public boolean canConnect(long a, long b);
+}
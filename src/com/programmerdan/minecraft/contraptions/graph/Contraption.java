@@ -0,0 +1,285 @@
+package com.programmerdan.minecraft.contraptions.graph;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.programmerdan.minecraft.contraptions.UpdateMode;
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.gadget.Wear;
+import com.programmerdan.minecraft.contraptions.trace.TraceWriter;
+import com.programmerdan.minecraft.contraptions.util.Footprint;
+
+/**
+ * A Contraption: a directed graph of Gadgets, plus the state that belongs to the
+ * whole rather than to any one Gadget.
+ * 
+ * Repair is one such thing. Per the design, Resource:Repair is shared 1/N across every
+ * Gadget in the graph. Rather than walk every Gadget each cycle, the Contraption keeps a
+ * running index of repair credited per Gadget; each {@link Wear} claims the difference
+ * since it last settled, whenever it is next read.
+ * 
+ * Times are in milliseconds.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class Contraption {
+	private final long id;
+	private ContraptionGraph graph;
+
+	private double repairIndex;
+	private double repairRate;
+	private long repairSettled;
+
+	private long updatedTick = -1L;
+	private boolean graphDirty = true;
+	private volatile Runnable waker;
+	private volatile UUID owner;
+	private volatile long footprint;
+	private volatile int gadgetCount;
+	private volatile UpdateMode mode = UpdateMode.normal;
+
+	public Contraption(long id, ContraptionGraph graph, long now) {
+		this(id, graph, null, now);
+	}
+
+	/**
+	 * @param owner the player this Contraption counts against, e.g. whoever built it; or null
+	 */
+	public Contraption(long id, ContraptionGraph graph, UUID owner, long now) {
+		this.id = id;
+		this.graph = graph;
+		this.owner = owner;
+		this.repairSettled = now;
+		this.gadgetCount = graph.getGadgets().size();
+		for (GadgetBase gadget : graph.getGadgets().values()) {
+			if (gadget.getWear() != null) {
+				gadget.getWear().join(now, 0.0d);
+			}
+		}
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public synchronized ContraptionGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return the number of Gadgets in the graph; doesn't wait on an update in progress.
+	 */
+	public int getGadgetCount() {
+		return gadgetCount;
+	}
+
+	/**
+	 * @return the player this Contraption counts against, or null if none.
+	 */
+	public UUID getOwner() {
+		return owner;
+	}
+
+	public void setOwner(UUID owner) {
+		this.owner = owner;
+	}
+
+	/**
+	 * Estimates the heap this Contraption retains now, and keeps the result for
+	 * {@link #getFootprint()}.
+	 * 
+	 * @return estimated bytes retained.
+	 */
+	public synchronized long estimateFootprint() {
+		footprint = Footprint.OBJECT + 12 * 8L + graph.getFootprint();
+		return footprint;
+	}
+
+	/**
+	 * @return bytes retained as of the last {@link #estimateFootprint()}, or 0 if never.
+	 */
+	public long getFootprint() {
+		return footprint;
+	}
+
+	public UpdateMode getUpdateMode() {
+		return mode;
+	}
+
+	public void setUpdateMode(UpdateMode mode) {
+		this.mode = mode;
+	}
+
+	/**
+	 * Replaces the graph, e.g. after Gadgets were added or removed. Repair credit up to
+	 * <code>now</code> is shared among the old set of Gadgets; Gadgets leaving are settled
+	 * on the way out, and Gadgets joining start from the current index.
+	 */
+	public synchronized void setGraph(ContraptionGraph newGraph, long now) {
+		double index = getRepairIndex(now);
+		Map<Long, GadgetBase> before = graph.getGadgets();
+		Map<Long, GadgetBase> after = newGraph.getGadgets();
+		for (Map.Entry<Long, GadgetBase> entry : before.entrySet()) {
+			Wear wear = entry.getValue().getWear();
+			if (wear != null && after.get(entry.getKey()) != entry.getValue()) {
+				wear.leave(now, index);
+			}
+		}
+		for (Map.Entry<Long, GadgetBase> entry : after.entrySet()) {
+			Wear wear = entry.getValue().getWear();
+			if (wear != null && before.get(entry.getKey()) != entry.getValue()) {
+				wear.join(now, index);
+			}
+		}
+		this.repairIndex = index;
+		this.repairSettled = now;
+		graph.dissolveGrids();
+		this.graph = newGraph;
+		this.gadgetCount = after.size();
+		this.graphDirty = true;
+		TraceWriter trace = TraceWriter.current();
+		if (trace != null) {
+			trace.contraption(this);
+		}
+		wake();
+	}
+
+	/**
+	 * Removes a broken Pipe block from this Contraption's graph; see
+	 * {@link ContraptionGraph#breakPipe(long)}.
+	 * 
+	 * @param block packed location of the broken Pipe block
+	 * @return every edge no longer in the graph.
+	 */
+	public synchronized List<PipeEdge> breakPipe(long block) {
+		List<PipeEdge> removed = graph.breakPipe(block);
+		graphDirty = true;
+		TraceWriter trace = TraceWriter.current();
+		if (trace != null) {
+			trace.breakPipe(this, block);
+		}
+		wake();
+		return removed;
+	}
+
+	/**
+	 * @return true if the graph changed since this Contraption was last checkpointed.
+	 */
+	public synchronized boolean isGraphDirty() {
+		return graphDirty;
+	}
+
+	public synchronized void clearGraphDirty() {
+		this.graphDirty = false;
+	}
+
+	/**
+	 * @return the engine tick this Contraption has been brought up to, or -1 if never.
+	 */
+	public synchronized long getUpdatedTick() {
+		return updatedTick;
+	}
+
+	public synchronized void setUpdatedTick(long updatedTick) {
+		this.updatedTick = updatedTick;
+	}
+
+	/**
+	 * Sets who to tell when this Contraption changes from outside the engine.
+	 * 
+	 * @param waker run on every {@link #wake()}, or null for no one
+	 */
+	public void setWaker(Runnable waker) {
+		this.waker = waker;
+	}
+
+	/**
+	 * Signals that something outside the engine changed this Contraption, e.g. a player
+	 * edited an inventory or a link was made or broken, so any prediction of when it
+	 * next needs updating no longer holds. Safe to call from any thread.
+	 * <br>
+	 * {@link #setGraph} and {@link #breakPipe} wake on their own; anything else that
+	 * changes a Gadget from outside an update, such as the engine's inventory tracker,
+	 * must call this itself.
+	 */
+	public void wake() {
+		Runnable current = waker;
+		if (current != null) {
+			current.run();
+		}
+	}
+
+	/**
+	 * Gets the total repair credited to each Gadget of this Contraption so far.
+	 * 
+	 * @param now the current time
+	 * @return the running per-Gadget repair index
+	 */
+	public synchronized double getRepairIndex(long now) {
+		int count = graph.getGadgets().size();
+		if (count == 0 || repairRate == 0.0d || now <= repairSettled) {
+			return repairIndex;
+		}
+		return repairIndex + repairRate * (now - repairSettled) / count;
+	}
+
+	public synchronized double getRepairRate() {
+		return repairRate;
+	}
+
+	/**
+	 * Sets the rate Resource:Repair is generated for this whole Contraption, e.g. as a
+	 * Repair Consumer starts or runs dry.
+	 * 
+	 * @param rate Repair per millisecond, shared across all Gadgets
+	 * @param now the current time
+	 */
+	public synchronized void setRepairRate(double rate, long now) {
+		settleRepair(now);
+		this.repairRate = rate;
+	}
+
+	/**
+	 * Puts back repair state saved by a checkpoint.
+	 * 
+	 * @param index the repair index as of <code>settled</code>
+	 * @param rate Repair per millisecond
+	 * @param settled when <code>index</code> was taken
+	 */
+	public synchronized void restoreRepair(double index, double rate, long settled) {
+		this.repairIndex = index;
+		this.repairRate = rate;
+		this.repairSettled = settled;
+	}
+
+	/**
+	 * Credits a lump of Resource:Repair to this Contraption, shared across all Gadgets.
+	 */
+	public synchronized void addRepair(double amount, long now) {
+		settleRepair(now);
+		int count = graph.getGadgets().size();
+		if (count > 0) {
+			repairIndex += amount / count;
+		}
+	}
+
+	/**
+	 * @param gadget a Gadget of this Contraption
+	 * @param now the current time
+	 * @return the Gadget's health, or positive infinity if the Gadget doesn't wear
+	 */
+	public double getHealth(GadgetBase gadget, long now) {
+		Wear wear = gadget.getWear();
+		if (wear == null) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return wear.getHealth(now, getRepairIndex(now));
+	}
+
+	private void settleRepair(long now) {
+		repairIndex = getRepairIndex(now);
+		repairSettled = Math.max(repairSettled, now);
+	}
+}
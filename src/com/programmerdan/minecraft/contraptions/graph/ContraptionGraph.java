@@ -0,0 +1,463 @@
+package com.programmerdan.minecraft.contraptions.graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.grid.GridMember;
+import com.programmerdan.minecraft.contraptions.grid.Resource;
+import com.programmerdan.minecraft.contraptions.grid.ResourceGrid;
+import com.programmerdan.minecraft.contraptions.util.Footprint;
+
+/**
+ * The physical graph of a Contraption in a single world: Gadgets and junction Pipes as
+ * nodes, and {@link PipeEdge}s between them. All nodes and blocks are addressed by packed
+ * key (see {@link com.programmerdan.minecraft.contraptions.util.LocationKey}).
+ * 
+ * Built by {@link ContraptionGraphBuilder}. Breaking a Pipe block is handled here
+ * directly, without a rebuild, by expanding the edge it belonged to.
+ * 
+ * Not thread safe; once a graph belongs to a {@link Contraption}, change it only while
+ * holding that Contraption's lock.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class ContraptionGraph {
+	private final Map<Long, GadgetBase> gadgets = new HashMap<Long, GadgetBase>();
+	private final Map<Long, Double> junctions = new HashMap<Long, Double>();
+	private final Set<PipeEdge> edges = new LinkedHashSet<PipeEdge>();
+	private final Map<Long, List<PipeEdge>> adjacency = new HashMap<Long, List<PipeEdge>>();
+	private final Map<Long, PipeEdge> edgeIndex = new HashMap<Long, PipeEdge>();
+	private List<GadgetLink> links;
+	private List<ResourceGrid> grids;
+	private long dehydrated;
+
+	public void addGadget(long key, GadgetBase gadget) {
+		gadgets.put(key, gadget);
+		changed();
+	}
+
+	/**
+	 * @param key packed location of a Pipe with more than two connections
+	 * @param capacity the capacity of that Pipe block
+	 */
+	public void addJunction(long key, double capacity) {
+		junctions.put(key, capacity);
+		changed();
+	}
+
+	public void addEdge(PipeEdge edge) {
+		edges.add(edge);
+		incident(edge.getEndA()).add(edge);
+		incident(edge.getEndB()).add(edge);
+		for (long block : edge.getBlocks()) {
+			edgeIndex.put(block, edge);
+		}
+		changed();
+	}
+
+	public GadgetBase getGadget(long key) {
+		return gadgets.get(key);
+	}
+
+	public Map<Long, GadgetBase> getGadgets() {
+		return Collections.unmodifiableMap(gadgets);
+	}
+
+	public boolean isJunction(long key) {
+		return junctions.containsKey(key);
+	}
+
+	/**
+	 * @param key packed location of a junction
+	 * @return the capacity of that junction Pipe
+	 */
+	public double getJunctionCapacity(long key) {
+		return junctions.get(key);
+	}
+
+	public Set<Long> getJunctions() {
+		return Collections.unmodifiableSet(junctions.keySet());
+	}
+
+	public Collection<PipeEdge> getEdges() {
+		return Collections.unmodifiableSet(edges);
+	}
+
+	/**
+	 * @param node packed location of a Gadget or junction
+	 * @return the edges ending at that node
+	 */
+	public List<PipeEdge> getEdges(long node) {
+		List<PipeEdge> list = adjacency.get(node);
+		if (list == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * @param block packed location of a passthrough Pipe block
+	 * @return the edge covering that block, or null if none does.
+	 */
+	public PipeEdge getEdgeAt(long block) {
+		return edgeIndex.get(block);
+	}
+
+	/**
+	 * @return true if this block is a node, or covered by an edge, of this graph.
+	 */
+	public boolean contains(long block) {
+		return gadgets.containsKey(block) || junctions.containsKey(block) || edgeIndex.containsKey(block);
+	}
+
+	/**
+	 * Gets every Gadget-to-Gadget connection, looking through junctions. Where several
+	 * paths join the same pair, the first found is used; capacity is the narrowest edge
+	 * or junction along it. Computed once and kept until the graph next changes.
+	 * 
+	 * @return one link per connected pair of Gadgets.
+	 */
+	public List<GadgetLink> getLinks() {
+		if (links != null) {
+			return links;
+		}
+		List<GadgetLink> found = new ArrayList<GadgetLink>(edges.size());
+		for (Map.Entry<Long, GadgetBase> entry : gadgets.entrySet()) {
+			linksFrom(entry.getKey(), entry.getValue(), found);
+		}
+		links = Collections.unmodifiableList(found);
+		return links;
+	}
+
+	/**
+	 * Adds a link from <code>origin</code> to each Gadget with a higher key that it
+	 * reaches. Direct edges are always looked at first, so a Gadget next to the origin
+	 * is linked by its first direct edge even if a junction also leads there; the search
+	 * behind junctions is only set up if the origin touches one.
+	 */
+	private void linksFrom(long origin, GadgetBase gadget, List<GadgetLink> found) {
+		List<PipeEdge> direct = getEdges(origin);
+		boolean junctioned = false;
+		for (int i = 0; i < direct.size(); i++) {
+			PipeEdge edge = direct.get(i);
+			long next = edge.getOther(origin);
+			if (next == origin || reachedBefore(direct, i, origin, next)) {
+				continue;
+			}
+			if (junctions.containsKey(next)) {
+				junctioned = true;
+				continue;
+			}
+			GadgetBase other = gadgets.get(next);
+			if (other != null && origin < next) {
+				found.add(new GadgetLink(gadget, other, edge.getCapacity()));
+			}
+		}
+		if (!junctioned) {
+			return;
+		}
+
+		Map<Long, Double> reached = new HashMap<Long, Double>();
+		ArrayDeque<Long> pending = new ArrayDeque<Long>();
+		reached.put(origin, Double.POSITIVE_INFINITY);
+		for (PipeEdge edge : direct) {
+			long next = edge.getOther(origin);
+			if (reached.containsKey(next)) {
+				continue;
+			}
+			Double junction = junctions.get(next);
+			if (junction != null) {
+				reached.put(next, Math.min(edge.getCapacity(), junction));
+				pending.add(next);
+			} else {
+				reached.put(next, edge.getCapacity());
+			}
+		}
+		while (!pending.isEmpty()) {
+			long node = pending.poll();
+			double narrowest = reached.get(node);
+			for (PipeEdge edge : getEdges(node)) {
+				long next = edge.getOther(node);
+				if (reached.containsKey(next)) {
+					continue;
+				}
+				double capacity = Math.min(narrowest, edge.getCapacity());
+				Double junction = junctions.get(next);
+				if (junction != null) {
+					capacity = Math.min(capacity, junction);
+					pending.add(next);
+				} else if (origin < next && gadgets.get(next) != null) {
+					found.add(new GadgetLink(gadget, gadgets.get(next), capacity));
+				}
+				reached.put(next, capacity);
+			}
+		}
+	}
+
+	private static boolean reachedBefore(List<PipeEdge> direct, int index, long origin, long node) {
+		for (int i = 0; i < index; i++) {
+			if (direct.get(i).getOther(origin) == node) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the {@link ResourceGrid}s formed by Gadgets that are {@link GridMember}s, one
+	 * for each set of members of a Resource linked to one another. Formed once and kept
+	 * until the graph next changes, at which point they are dissolved back into their
+	 * members.
+	 * 
+	 * @return every grid in this graph.
+	 */
+	public List<ResourceGrid> getGrids() {
+		if (grids != null) {
+			return grids;
+		}
+		List<ResourceGrid> found = new ArrayList<ResourceGrid>();
+		Map<GadgetBase, List<GadgetBase>> neighbours = null;
+		for (Resource resource : Resource.values()) {
+			Set<GadgetBase> seen = Collections.newSetFromMap(new IdentityHashMap<GadgetBase, Boolean>());
+			for (GadgetBase gadget : gadgets.values()) {
+				if (!isMember(gadget, resource) || !seen.add(gadget)) {
+					continue;
+				}
+				if (neighbours == null) {
+					neighbours = neighbours();
+				}
+				List<GridMember> component = new ArrayList<GridMember>();
+				ArrayDeque<GadgetBase> pending = new ArrayDeque<GadgetBase>();
+				pending.add(gadget);
+				while (!pending.isEmpty()) {
+					GadgetBase next = pending.poll();
+					component.add((GridMember) next);
+					List<GadgetBase> adjacent = neighbours.get(next);
+					if (adjacent == null) {
+						continue;
+					}
+					for (GadgetBase other : adjacent) {
+						if (isMember(other, resource) && seen.add(other)) {
+							pending.add(other);
+						}
+					}
+				}
+				found.add(new ResourceGrid(resource, component));
+			}
+		}
+		grids = Collections.unmodifiableList(found);
+		return grids;
+	}
+
+	private static boolean isMember(GadgetBase gadget, Resource resource) {
+		return gadget instanceof GridMember && ((GridMember) gadget).isGridMember(resource);
+	}
+
+	private Map<GadgetBase, List<GadgetBase>> neighbours() {
+		Map<GadgetBase, List<GadgetBase>> neighbours = new IdentityHashMap<GadgetBase, List<GadgetBase>>();
+		for (GadgetLink link : getLinks()) {
+			neighbour(neighbours, link.getA(), link.getB());
+			neighbour(neighbours, link.getB(), link.getA());
+		}
+		return neighbours;
+	}
+
+	private static void neighbour(Map<GadgetBase, List<GadgetBase>> neighbours, GadgetBase from, GadgetBase to) {
+		List<GadgetBase> list = neighbours.get(from);
+		if (list == null) {
+			list = new ArrayList<GadgetBase>(2);
+			neighbours.put(from, list);
+		}
+		list.add(to);
+	}
+
+	/**
+	 * Removes a Pipe block from the graph. The edge covering it is dropped, as what is
+	 * left on either side of the break no longer joins two nodes. If the block was a
+	 * junction, every edge meeting there is dropped instead.
+	 * 
+	 * Junctions left behind with only two edges are no longer junctions, so their
+	 * edges are merged; junctions left with one or none are dead ends, and pruned.
+	 * 
+	 * @param block packed location of the broken Pipe block
+	 * @return every edge no longer in the graph, including any replaced by a merge.
+	 */
+	public List<PipeEdge> breakPipe(long block) {
+		List<PipeEdge> removed = new ArrayList<PipeEdge>();
+		List<Long> touched = new ArrayList<Long>();
+		PipeEdge edge = edgeIndex.get(block);
+		if (edge != null) {
+			removeEdge(edge);
+			removed.add(edge);
+			touched.add(edge.getEndA());
+			touched.add(edge.getEndB());
+		} else if (junctions.containsKey(block)) {
+			for (PipeEdge meeting : new ArrayList<PipeEdge>(getEdges(block))) {
+				removeEdge(meeting);
+				removed.add(meeting);
+				touched.add(meeting.getOther(block));
+			}
+			junctions.remove(block);
+			adjacency.remove(block);
+		}
+		for (Long node : touched) {
+			settle(node, removed);
+		}
+		return removed;
+	}
+
+	private void settle(long node, List<PipeEdge> removed) {
+		if (!junctions.containsKey(node)) {
+			return;
+		}
+		List<PipeEdge> meeting = new ArrayList<PipeEdge>(getEdges(node));
+		if (meeting.size() > 2) {
+			return;
+		}
+		double capacity = junctions.remove(node);
+		adjacency.remove(node);
+		for (PipeEdge edge : meeting) {
+			removeEdge(edge);
+			removed.add(edge);
+		}
+		if (meeting.size() < 2) {
+			for (PipeEdge edge : meeting) {
+				settle(edge.getOther(node), removed);
+			}
+			return;
+		}
+
+		PipeEdge first = meeting.get(0);
+		PipeEdge second = meeting.get(1);
+		long from = first.getOther(node);
+		long to = second.getOther(node);
+		if (from == to) {
+			// the two edges formed a loop back to the same node; nothing left to join.
+			settle(from, removed);
+			return;
+		}
+		long[] head = oriented(first, from);
+		long[] tail = oriented(second, node);
+		long[] blocks = new long[head.length + 1 + tail.length];
+		System.arraycopy(head, 0, blocks, 0, head.length);
+		blocks[head.length] = node;
+		System.arraycopy(tail, 0, blocks, head.length + 1, tail.length);
+		addEdge(new PipeEdge(from, to, Math.min(capacity,
+				Math.min(first.getCapacity(), second.getCapacity())), blocks));
+	}
+
+	private void removeEdge(PipeEdge edge) {
+		edges.remove(edge);
+		List<PipeEdge> list = adjacency.get(edge.getEndA());
+		if (list != null) {
+			list.remove(edge);
+		}
+		list = adjacency.get(edge.getEndB());
+		if (list != null) {
+			list.remove(edge);
+		}
+		for (long block : edge.getBlocks()) {
+			edgeIndex.remove(block);
+		}
+		changed();
+	}
+
+	/**
+	 * Drops the cached links, e.g. to save heap between updates of a Contraption over its
+	 * footprint cap; they are rebuilt on next use. Grids are kept: they are small next to
+	 * the links, and dissolving them would hand their charge back and forth every update.
+	 */
+	public void dehydrate() {
+		if (links != null) {
+			dehydrated = linksFootprint(links.size());
+			links = null;
+		}
+	}
+
+	/**
+	 * Estimates the heap this graph retains: its Gadgets and their storage, its Pipes and
+	 * the indexes over them, and any cached links and grids. Links dropped by
+	 * {@link #dehydrate()} are counted as they will be when rebuilt, so the estimate
+	 * doesn't change with the update mode the footprint caps choose.
+	 * 
+	 * @return estimated bytes retained.
+	 */
+	public long getFootprint() {
+		long bytes = Footprint.OBJECT + 7 * Footprint.REFERENCE;
+		for (GadgetBase gadget : gadgets.values()) {
+			bytes += Footprint.MAP_ENTRY + gadget.getFootprint();
+		}
+		bytes += junctions.size() * (Footprint.MAP_ENTRY + Footprint.OBJECT + 8L);
+		for (PipeEdge edge : edges) {
+			int blocks = edge.getBlocks().length;
+			// the edge, its set entry, its place in both ends' adjacency, and one index entry per block.
+			bytes += Footprint.OBJECT + 4 * 8L + Footprint.array(blocks, 8L) + Footprint.MAP_ENTRY
+					+ 2 * Footprint.REFERENCE + blocks * Footprint.MAP_ENTRY;
+		}
+		bytes += adjacency.size() * (Footprint.MAP_ENTRY + Footprint.OBJECT + Footprint.array(2, Footprint.REFERENCE));
+		bytes += links != null ? linksFootprint(links.size()) : dehydrated;
+		if (grids != null) {
+			for (ResourceGrid grid : grids) {
+				bytes += Footprint.REFERENCE + grid.getFootprint();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Dissolves any grids formed so far, handing their storage back to their members;
+	 * e.g. before this graph is replaced outright. They are formed again on next use.
+	 */
+	public void dissolveGrids() {
+		if (grids != null) {
+			for (ResourceGrid grid : grids) {
+				grid.dissolve();
+			}
+			grids = null;
+		}
+	}
+
+	private static long linksFootprint(int count) {
+		return Footprint.array(count, Footprint.REFERENCE) + count * (Footprint.OBJECT + 3 * 8L);
+	}
+
+	private void changed() {
+		links = null;
+		dehydrated = 0L;
+		dissolveGrids();
+	}
+
+	private List<PipeEdge> incident(long node) {
+		List<PipeEdge> list = adjacency.get(node);
+		if (list == null) {
+			list = new ArrayList<PipeEdge>(2);
+			adjacency.put(node, list);
+		}
+		return list;
+	}
+
+	/**
+	 * @return the blocks of <code>edge</code>, ordered starting from the <code>start</code> end.
+	 */
+	private static long[] oriented(PipeEdge edge, long start) {
+		long[] blocks = edge.getBlocks();
+		if (edge.getEndA() != start) {
+			for (int i = 0, j = blocks.length - 1; i < j; i++, j--) {
+				long swap = blocks[i];
+				blocks[i] = blocks[j];
+				blocks[j] = swap;
+			}
+		}
+		return blocks;
+	}
+}
@@ -0,0 +1,175 @@
+package com.programmerdan.minecraft.contraptions.graph;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.bukkit.block.BlockFace;
+
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.util.LocationKey;
+
+/**
+ * Walks a {@link BlockTopology} outward from a seed Gadget and builds the
+ * {@link ContraptionGraph} of everything connected to it.
+ * 
+ * Pipe blocks with exactly two connections are passthroughs; each maximal chain of
+ * them becomes one {@link PipeEdge}, so a run hundreds of blocks long is a single edge
+ * to whatever consumes the graph. Pipe blocks with more than two connections are kept
+ * as junction nodes. Chains that dead-end without reaching a node carry nothing and
+ * are left out.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class ContraptionGraphBuilder {
+	private static final BlockFace[] FACES = new BlockFace[] {
+		BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST, BlockFace.UP, BlockFace.DOWN
+	};
+
+	private final BlockTopology topology;
+
+	public ContraptionGraphBuilder(BlockTopology topology) {
+		this.topology = topology;
+	}
+
+	/**
+	 * @param seed packed location of any Gadget in the Contraption
+	 * @return the graph connected to the seed, or null if there is no Gadget there.
+	 */
+	public ContraptionGraph build(long seed) {
+		GadgetBase start = topology.getGadget(seed);
+		if (start == null) {
+			return null;
+		}
+		ContraptionGraph graph = new ContraptionGraph();
+		graph.addGadget(seed, start);
+
+		Deque<Long> pending = new ArrayDeque<Long>();
+		Set<Long> visited = new HashSet<Long>();
+		Set<Long> done = new HashSet<Long>();
+		pending.add(seed);
+		visited.add(seed);
+
+		long[] scratch = new long[FACES.length];
+		while (!pending.isEmpty()) {
+			long node = pending.poll();
+			done.add(node);
+			for (BlockFace face : FACES) {
+				long next = LocationKey.relative(node, face);
+				if (graph.getEdgeAt(next) != null) {
+					continue;
+				}
+				// cheap block checks first; most faces are air, and canConnect may ask Citadel.
+				GadgetBase gadget = topology.getGadget(next);
+				boolean pipe = gadget == null && topology.isPipe(next);
+				if ((gadget == null && !pipe) || !topology.canConnect(node, next)) {
+					continue;
+				}
+				if (gadget != null || isJunction(next, scratch)) {
+					// direct neighbors; only the side reached first records the edge.
+					if (!done.contains(next)) {
+						graph.addEdge(new PipeEdge(node, next,
+								Math.min(nodeCapacity(node), nodeCapacity(next)), new long[0]));
+					}
+					enqueue(graph, next, gadget, pending, visited);
+				} else {
+					walk(graph, node, next, scratch, pending, visited);
+				}
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * Follows a chain of passthrough Pipes starting at <code>first</code>, recording one
+	 * edge if it ends at a node other than <code>origin</code>. A junction at either end
+	 * limits the edge as any Pipe block along it would.
+	 */
+	private void walk(ContraptionGraph graph, long origin, long first, long[] scratch,
+			Deque<Long> pending, Set<Long> visited) {
+		long[] blocks = new long[16];
+		int length = 0;
+		double capacity = nodeCapacity(origin);
+		long previous = origin;
+		long current = first;
+		while (true) {
+			int links = connections(current, scratch);
+			if (links > 2) {
+				capacity = Math.min(capacity, topology.getPipeCapacity(current));
+				enqueue(graph, current, null, pending, visited);
+				break;
+			}
+			if (length == blocks.length) {
+				long[] grown = new long[length << 1];
+				System.arraycopy(blocks, 0, grown, 0, length);
+				blocks = grown;
+			}
+			blocks[length++] = current;
+			capacity = Math.min(capacity, topology.getPipeCapacity(current));
+
+			long next = previous;
+			for (int i = 0; i < links; i++) {
+				if (scratch[i] != previous) {
+					next = scratch[i];
+					break;
+				}
+			}
+			if (next == previous) {
+				return; // dead end
+			}
+			previous = current;
+			current = next;
+			GadgetBase gadget = topology.getGadget(current);
+			if (gadget != null) {
+				enqueue(graph, current, gadget, pending, visited);
+				break;
+			}
+		}
+		if (current == origin) {
+			return;
+		}
+		long[] trimmed = new long[length];
+		System.arraycopy(blocks, 0, trimmed, 0, length);
+		graph.addEdge(new PipeEdge(origin, current, capacity, trimmed));
+	}
+
+	private void enqueue(ContraptionGraph graph, long node, GadgetBase gadget,
+			Deque<Long> pending, Set<Long> visited) {
+		if (!visited.add(node)) {
+			return;
+		}
+		if (gadget != null) {
+			graph.addGadget(node, gadget);
+		} else {
+			graph.addJunction(node, topology.getPipeCapacity(node));
+		}
+		pending.add(node);
+	}
+
+	private double nodeCapacity(long node) {
+		return topology.isPipe(node) ? topology.getPipeCapacity(node) : Double.POSITIVE_INFINITY;
+	}
+
+	private boolean isJunction(long pipe, long[] scratch) {
+		return connections(pipe, scratch) > 2;
+	}
+
+	/**
+	 * Fills <code>into</code> with the Gadget and Pipe neighbors this Pipe may connect to.
+	 * 
+	 * @return the number of neighbors found.
+	 */
+	private int connections(long pipe, long[] into) {
+		int count = 0;
+		for (BlockFace face : FACES) {
+			long next = LocationKey.relative(pipe, face);
+			if ((topology.isPipe(next) || topology.getGadget(next) != null)
+					&& topology.canConnect(pipe, next)) {
+				into[count++] = next;
+			}
+		}
+		return count;
+	}
+}
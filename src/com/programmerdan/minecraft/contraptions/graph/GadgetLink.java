@@ -0,0 +1,83 @@
+package com.programmerdan.minecraft.contraptions.graph;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.gadget.ItemStore;
+import com.programmerdan.minecraft.contraptions.rate.FixedPoint;
+
+/**
+ * A connection between two Gadgets, with any junctions between them resolved away.
+ * This is the view of the graph flow solving works from.
+ * 
+ * Under a {@link FixedPoint} resolution, a link also carries what rounding left over of
+ * each item kind moved along it, each way, into the next update. Carries last as long as
+ * the link; when the graph changes, less than a unit of each is dropped.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class GadgetLink {
+	private final GadgetBase a;
+	private final GadgetBase b;
+	private final double capacity;
+	private Map<ItemStore.Key, Double> carryAB;
+	private Map<ItemStore.Key, Double> carryBA;
+
+	public GadgetLink(GadgetBase a, GadgetBase b, double capacity) {
+		this.a = a;
+		this.b = b;
+		this.capacity = capacity;
+	}
+
+	public GadgetBase getA() {
+		return a;
+	}
+
+	public GadgetBase getB() {
+		return b;
+	}
+
+	/**
+	 * @return the narrowest capacity along the path, in items per single TimeMeasure unit.
+	 */
+	public double getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Rounds an amount moving along this link down to <code>resolution</code>, adding in
+	 * what was left over last time and keeping what is left over now. No more than
+	 * <code>limit</code> moves; anything owed beyond it stays carried.
+	 * 
+	 * @param fromA true if moving from A to B
+	 * @param key the item kind moving
+	 * @param amount the amount solved for
+	 * @param limit the most that may move: what the source can spare and the destination
+	 *     can take; at least <code>amount</code>
+	 * @param resolution the fixed-point resolution to round to
+	 * @return the amount to actually move.
+	 */
+	public double carry(boolean fromA, ItemStore.Key key, double amount, double limit, FixedPoint resolution) {
+		Map<ItemStore.Key, Double> carry = fromA ? carryAB : carryBA;
+		if (carry == null) {
+			carry = new HashMap<ItemStore.Key, Double>(4);
+			if (fromA) {
+				carryAB = carry;
+			} else {
+				carryBA = carry;
+			}
+		}
+		Double owed = carry.get(key);
+		double total = owed == null ? amount : amount + owed;
+		double moved = Math.min(resolution.floor(total), resolution.floor(limit));
+		double left = total - moved;
+		if (left > 0.0d) {
+			carry.put(key, left);
+		} else if (owed != null) {
+			carry.remove(key);
+		}
+		return moved;
+	}
+}
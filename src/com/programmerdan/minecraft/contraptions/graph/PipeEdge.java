@@ -0,0 +1,69 @@
+package com.programmerdan.minecraft.contraptions.graph;
+
+/**
+ * A single logical edge between two nodes of a {@link ContraptionGraph}, standing in
+ * for a maximal run of passthrough Pipe blocks. A node is either a Gadget or a
+ * junction Pipe (one with more than two connections).
+ * 
+ * The edge carries the smallest capacity along its run, and the physical blocks it
+ * covers so it can be expanded again when one of them is broken. Gadgets that touch
+ * directly are joined by an edge with no blocks and unlimited capacity.
+ * 
+ * Ends are unordered; which way items flow is up to the Gadgets at either end.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class PipeEdge {
+	private final long endA;
+	private final long endB;
+	private final double capacity;
+	private final long[] blocks;
+
+	/**
+	 * @param endA packed location of one end node
+	 * @param endB packed location of the other end node
+	 * @param capacity minimum capacity along the run, in items per single TimeMeasure unit
+	 * @param blocks packed locations of the passthrough Pipe blocks, ordered from endA to endB
+	 */
+	public PipeEdge(long endA, long endB, double capacity, long[] blocks) {
+		this.endA = endA;
+		this.endB = endB;
+		this.capacity = capacity;
+		this.blocks = blocks;
+	}
+
+	public long getEndA() {
+		return endA;
+	}
+
+	public long getEndB() {
+		return endB;
+	}
+
+	/**
+	 * @param end one end of this edge
+	 * @return the other end
+	 */
+	public long getOther(long end) {
+		return end == endA ? endB : endA;
+	}
+
+	public double getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return a copy of the physical blocks, ordered from endA to endB.
+	 */
+	public long[] getBlocks() {
+		return blocks.clone();
+	}
+
+	/**
+	 * @return the number of physical Pipe blocks this edge stands for.
+	 */
+	public int length() {
+		return blocks.length;
+	}
+}
@@ -0,0 +1,33 @@
+package com.programmerdan.minecraft.contraptions.graph;
+
+import org.bukkit.World;
+
+import com.programmerdan.minecraft.contraptions.citadel.ReinforcementGroupCache;
+
+/**
+ * {@link BlockTopology} that enforces the Citadel rule: Gadgets and Pipes must be
+ * reinforced to the same group to join the same Contraption. Group checks go through
+ * the {@link ReinforcementGroupCache}, so graph construction must run on the main thread.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public abstract class ReinforcedTopology implements BlockTopology {
+
+	private final World world;
+	private final ReinforcementGroupCache groups;
+
+	public ReinforcedTopology(World world, ReinforcementGroupCache groups) {
+		this.world = world;
+		this.groups = groups;
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	@Override
+	public boolean canConnect(long a, long b) {
+		return groups.sameGroup(world, a, b);
+	}
+}
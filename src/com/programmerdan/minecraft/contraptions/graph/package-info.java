@@ -0,0 +1,8 @@
+/**
+ * Graph construction and representation of Contraptions: Gadgets as nodes, and
+ * runs of Pipes collapsed into single logical edges between them.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+package com.programmerdan.minecraft.contraptions.graph;
@@ -0,0 +1,70 @@
+package com.programmerdan.minecraft.contraptions.grid;
+
+/**
+ * A Gadget that generates, stores or consumes a virtual {@link Resource} through a
+ * {@link ResourceGrid} rather than through item flows.
+ * <br>
+ * A grid only recalculates its sums when told to, so a member must call
+ * {@link ResourceGrid#invalidate()} on its current grid whenever its supply, demand or
+ * capacity changes. Rates are per tick.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public interface GridMember {
+
+	/**
+	 * @return true if this Gadget takes part in grids of <code>resource</code>.
+	 */
+	public boolean isGridMember(Resource resource);
+
+	/**
+	 * @return amount of <code>resource</code> this can generate per tick, right now.
+	 */
+	public double getGridSupply(Resource resource);
+
+	/**
+	 * @return amount of <code>resource</code> this wants per tick, right now.
+	 */
+	public double getGridDemand(Resource resource);
+
+	/**
+	 * @return the most of <code>resource</code> this can store.
+	 */
+	public double getGridCapacity(Resource resource);
+
+	/**
+	 * @return amount of <code>resource</code> stored. Only read when joining a grid; while
+	 *   in a grid, storage is held by the grid as a whole.
+	 */
+	public double getGridStored(Resource resource);
+
+	/**
+	 * Hands back this member's share of the grid's storage, when its grid is dissolved.
+	 */
+	public void setGridStored(Resource resource, double stored);
+
+	/**
+	 * Generates <code>amount</code> of <code>resource</code> for the grid.
+	 * 
+	 * @return the amount actually generated, if this ran short.
+	 */
+	public double gridDraw(Resource resource, double amount);
+
+	/**
+	 * Delivers <code>amount</code> of <code>resource</code> from the grid.
+	 */
+	public void gridDeliver(Resource resource, double amount);
+
+	/**
+	 * Tells this member which grid of <code>resource</code> it now belongs to.
+	 * 
+	 * @param grid the grid, or null when leaving it
+	 */
+	public void setGrid(Resource resource, ResourceGrid grid);
+
+	/**
+	 * @return the grid of <code>resource</code> this belongs to, or null if none is formed.
+	 */
+	public ResourceGrid getGrid(Resource resource);
+}
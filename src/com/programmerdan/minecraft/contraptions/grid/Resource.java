@@ -0,0 +1,14 @@
+package com.programmerdan.minecraft.contraptions.grid;
+
+/**
+ * Virtual Resources; these only have meaning within Contraptions, and are never
+ * realized as items.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public enum Resource {
+	POWER,
+	MAGIC,
+	REPAIR
+}
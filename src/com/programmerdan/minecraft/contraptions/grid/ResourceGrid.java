@@ -0,0 +1,224 @@
+package com.programmerdan.minecraft.contraptions.grid;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.programmerdan.minecraft.contraptions.util.Footprint;
+
+/**
+ * A connected set of {@link GridMember}s of one {@link Resource}, run as a single node.
+ * <br>
+ * Supply, demand and capacity are scalar sums over the members, recalculated only after
+ * a member calls {@link #invalidate()}. Storage belongs to the grid as a whole while it
+ * exists; it is shared back out to the members, in proportion to their capacity, when
+ * the grid is {@link #dissolve() dissolved}.
+ * <br>
+ * Each advance meets demand from supply first, then from storage; any surplus charges
+ * storage. When demand can't be met, every consumer gets the same fraction of what it
+ * asked for. Pipe capacity is not considered; a grid is as good as a bus.
+ *
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class ResourceGrid {
+	private final Resource resource;
+	private final GridMember[] members;
+	private final double[] supplies;
+	private final double[] demands;
+
+	private boolean dirty = true;
+	private double supply;
+	private double demand;
+	private double capacity;
+	private double stored;
+	private double satisfaction = 1.0d;
+
+	/**
+	 * Forms a grid; each member's own storage is pooled into the grid.
+	 *
+	 * @param resource the Resource carried
+	 * @param members the connected members
+	 */
+	public ResourceGrid(Resource resource, List<? extends GridMember> members) {
+		this.resource = resource;
+		this.members = members.toArray(new GridMember[members.size()]);
+		this.supplies = new double[this.members.length];
+		this.demands = new double[this.members.length];
+		for (GridMember member : this.members) {
+			stored += member.getGridStored(resource);
+			member.setGrid(resource, this);
+		}
+	}
+
+	public Resource getResource() {
+		return resource;
+	}
+
+	public List<GridMember> getMembers() {
+		return Collections.unmodifiableList(Arrays.asList(members));
+	}
+
+	/**
+	 * @return estimated bytes of heap retained by this grid.
+	 */
+	public long getFootprint() {
+		return Footprint.OBJECT + 12 * 8L + Footprint.array(members.length, Footprint.REFERENCE)
+				+ 2 * Footprint.array(members.length, 8L);
+	}
+
+	/**
+	 * Marks the sums stale; they are recalculated on next use.
+	 */
+	public void invalidate() {
+		dirty = true;
+	}
+
+	private void recalculate() {
+		supply = 0.0d;
+		demand = 0.0d;
+		capacity = 0.0d;
+		for (int i = 0; i < members.length; i++) {
+			supplies[i] = Math.max(0.0d, members[i].getGridSupply(resource));
+			demands[i] = Math.max(0.0d, members[i].getGridDemand(resource));
+			supply += supplies[i];
+			demand += demands[i];
+			capacity += Math.max(0.0d, members[i].getGridCapacity(resource));
+		}
+		stored = Math.min(stored, capacity);
+		dirty = false;
+	}
+
+	/**
+	 * @return total supply per tick.
+	 */
+	public double getSupply() {
+		if (dirty) {
+			recalculate();
+		}
+		return supply;
+	}
+
+	/**
+	 * @return total demand per tick.
+	 */
+	public double getDemand() {
+		if (dirty) {
+			recalculate();
+		}
+		return demand;
+	}
+
+	public double getCapacity() {
+		if (dirty) {
+			recalculate();
+		}
+		return capacity;
+	}
+
+	public double getStored() {
+		return stored;
+	}
+
+	/**
+	 * @return fraction of demand met by the last advance.
+	 */
+	public double getSatisfaction() {
+		return satisfaction;
+	}
+
+	/**
+	 * Gets how long the grid can run as it stands before storage fills or empties, which
+	 * would change what it delivers or draws.
+	 *
+	 * @return ticks until storage fills or empties; infinite if neither will happen.
+	 */
+	public double timeToChange() {
+		double net = getSupply() - demand;
+		if (net > 0.0d && stored < capacity) {
+			return (capacity - stored) / net;
+		} else if (net < 0.0d && stored > 0.0d) {
+			return stored / -net;
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Runs the grid for <code>ticks</code>: draws from generators, settles storage, and
+	 * delivers to consumers.
+	 *
+	 * @param ticks the span to advance by
+	 * @return true if anything was drawn or delivered.
+	 */
+	public boolean advance(double ticks) {
+		if (dirty) {
+			recalculate();
+		}
+		if (!(ticks > 0.0d) || (supply == 0.0d && demand == 0.0d)) {
+			return false;
+		}
+		double produced = supply * ticks;
+		double wanted = demand * ticks;
+		double delivered;
+		double drawn;
+		if (produced >= wanted) {
+			double charge = Math.min(produced - wanted, capacity - stored);
+			delivered = wanted;
+			drawn = wanted + charge;
+			stored += charge;
+		} else {
+			double discharge = Math.min(stored, wanted - produced);
+			delivered = produced + discharge;
+			drawn = produced;
+			stored -= discharge;
+		}
+		satisfaction = wanted > 0.0d ? delivered / wanted : 1.0d;
+		double load = produced > 0.0d ? drawn / produced : 0.0d;
+
+		double shortfall = 0.0d;
+		if (load > 0.0d) {
+			for (int i = 0; i < members.length; i++) {
+				if (supplies[i] > 0.0d) {
+					double expected = supplies[i] * load * ticks;
+					shortfall += expected - members[i].gridDraw(resource, expected);
+				}
+			}
+		}
+		if (satisfaction > 0.0d) {
+			for (int i = 0; i < members.length; i++) {
+				if (demands[i] > 0.0d) {
+					members[i].gridDeliver(resource, demands[i] * satisfaction * ticks);
+				}
+			}
+		}
+		if (shortfall > 0.0d) {
+			// a generator ran dry partway; take what it couldn't make out of storage.
+			stored = Math.max(0.0d, stored - shortfall);
+			dirty = true;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the storage <code>member</code> would be handed back were this grid dissolved
+	 * now, e.g. to checkpoint it without breaking the grid up.
+	 */
+	public double getShare(GridMember member) {
+		if (dirty) {
+			recalculate();
+		}
+		return capacity > 0.0d ? stored * Math.max(0.0d, member.getGridCapacity(resource)) / capacity : 0.0d;
+	}
+
+	/**
+	 * Breaks up this grid, e.g. when the graph it came from changes. Storage is shared back
+	 * to members by capacity, and each member is told it has left.
+	 */
+	public void dissolve() {
+		for (GridMember member : members) {
+			member.setGridStored(resource, getShare(member));
+			member.setGrid(resource, null);
+		}
+		stored = 0.0d;
+	}
+}
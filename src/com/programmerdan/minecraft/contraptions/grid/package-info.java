@@ -0,0 +1,9 @@
+/**
+ * Aggregated grids for virtual Resources such as Power. Every connected set of
+ * generators, batteries and consumers of one Resource is run as a single node with
+ * scalar supply, demand and storage, instead of flow by flow through the graph.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+package com.programmerdan.minecraft.contraptions.grid;
@@ -0,0 +1,87 @@
+package com.programmerdan.minecraft.contraptions.rate;
+
+/**
+ * A fixed-point resolution for quantities: amounts are whole multiples of
+ * 2<sup>-bits</sup> of an item, i.e. <code>bits</code> binary places.
+ * <br>
+ * Amounts are still held as doubles; a resolution only rounds them, it is not an integer
+ * arithmetic core. {@link #floor(double)} rounds down, and the caller keeps what it
+ * dropped to carry into a later amount, so fractions of items don't pile up in storage.
+ * Results still depend on how updates are split (see
+ * {@link com.programmerdan.minecraft.contraptions.engine.FlowSolver}).
+ *
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public final class FixedPoint {
+	/**
+	 * Most binary places; beyond this, a double can't hold a full storage to the unit.
+	 */
+	public static final int MAX_BITS = 30;
+
+	/**
+	 * Bits setting for no fixed-point resolution: amounts stay in floating point.
+	 */
+	public static final int OFF = -1;
+
+	private final int bits;
+	private final double scale;
+	private final double unit;
+
+	/**
+	 * @param bits binary places kept, from 0 (whole items) to {@link #MAX_BITS}
+	 */
+	public FixedPoint(int bits) {
+		if (bits < 0 || bits > MAX_BITS) {
+			throw new IllegalArgumentException("Fixed-point bits must be 0 to " + MAX_BITS + ", not " + bits);
+		}
+		this.bits = bits;
+		this.scale = (double) (1L << bits);
+		this.unit = 1.0d / scale;
+	}
+
+	/**
+	 * @param bits binary places kept, or {@link #OFF}
+	 * @return the resolution, or null if <code>bits</code> is {@link #OFF} or below.
+	 */
+	public static FixedPoint forBits(int bits) {
+		return bits < 0 ? null : new FixedPoint(bits);
+	}
+
+	public int getBits() {
+		return bits;
+	}
+
+	/**
+	 * @return the smallest amount representable.
+	 */
+	public double getUnit() {
+		return unit;
+	}
+
+	/**
+	 * @return <code>value</code> in units, rounded down.
+	 */
+	public long toFixed(double value) {
+		return (long) Math.floor(value * scale);
+	}
+
+	/**
+	 * @return <code>units</code> as an exact amount.
+	 */
+	public double toDouble(long units) {
+		return units * unit;
+	}
+
+	/**
+	 * @return the largest representable amount not above <code>value</code>.
+	 */
+	public double floor(double value) {
+		return toDouble(toFixed(value));
+	}
+
+	@Override
+	public String toString() {
+		return "FixedPoint " + bits + " bits";
+	}
+}
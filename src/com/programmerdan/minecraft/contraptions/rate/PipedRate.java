@@ -45,6 +45,16 @@ public class PipedRate {
 		return time;
 	}
 	
+	/**
+	 * Moves this rate onto a new time, leaving the resource as is; for Gadgets that keep
+	 *   their own rates and refresh them in place between queries.
+	 * 
+	 * @param time the new TimeMeasure
+	 */
+	public void setTime(TimeMeasure time) {
+		this.time = time;
+	}
+	
 	/**
 	 * Gets this resource count as if over a new time; doesn't change <i>this</i> but returns
 	 *   an AdvItemStack remapped either larger or smaller based on newMeasure. The new measure
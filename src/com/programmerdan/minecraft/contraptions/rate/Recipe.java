@@ -0,0 +1,165 @@
+package com.programmerdan.minecraft.contraptions.rate;
+
+import java.util.Map;
+
+import org.bukkit.Material;
+
+
+/**
+ * Immutable, precompiled Converter recipe. Built once from configuration and shared by
+ * every Converter running it; inputs and outputs are normalized to amounts per tick and
+ * held in parallel primitive arrays, so working out how much a Converter can make is a
+ * single multiply-and-min over what it has on hand.
+ * <br>
+ * Index order of inputs and outputs is fixed at compile time; callers holding a
+ * <code>double[]</code> of available inputs should fill it in {@link #getInput(int)} order.
+ *
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public final class Recipe {
+	private final String name;
+	private final double time;
+	private final double power;
+	private final Material[] inputs;
+	private final double[] inputRates;
+	private final double[] inputInverse;
+	private final Material[] outputs;
+	private final double[] outputRates;
+
+	private Recipe(String name, double time, double power, Map<Material, Double> inputs,
+			Map<Material, Double> outputs) {
+		this.name = name;
+		this.time = time;
+		this.power = power / time;
+		this.inputs = new Material[inputs.size()];
+		this.inputRates = new double[inputs.size()];
+		this.inputInverse = new double[inputs.size()];
+		int i = 0;
+		for (Map.Entry<Material, Double> entry : inputs.entrySet()) {
+			this.inputs[i] = entry.getKey();
+			this.inputRates[i] = entry.getValue() / time;
+			this.inputInverse[i] = time / entry.getValue();
+			i++;
+		}
+		this.outputs = new Material[outputs.size()];
+		this.outputRates = new double[outputs.size()];
+		i = 0;
+		for (Map.Entry<Material, Double> entry : outputs.entrySet()) {
+			this.outputs[i] = entry.getKey();
+			this.outputRates[i] = entry.getValue() / time;
+			i++;
+		}
+	}
+
+	/**
+	 * Compiles a recipe as configured: <code>inputs</code> and <code>power</code> are consumed
+	 * and <code>outputs</code> produced once every <code>time</code> ticks at full rate.
+	 *
+	 * @param name the recipe's configured name
+	 * @param time ticks per batch, must be positive
+	 * @param power power consumed per batch, zero if none
+	 * @param inputs items consumed per batch; amounts must be positive
+	 * @param outputs items produced per batch; amounts must be positive
+	 * @return the compiled recipe
+	 * @throws IllegalArgumentException if any amount or the time is out of range
+	 */
+	public static Recipe compile(String name, double time, double power, Map<Material, Double> inputs,
+			Map<Material, Double> outputs) {
+		if (!(time > 0.0d) || Double.isInfinite(time)) {
+			throw new IllegalArgumentException("Recipe " + name + " needs a positive time, not " + time);
+		}
+		if (power < 0.0d || Double.isNaN(power) || Double.isInfinite(power)) {
+			throw new IllegalArgumentException("Recipe " + name + " has invalid power " + power);
+		}
+		check(name, inputs);
+		check(name, outputs);
+		if (outputs.isEmpty()) {
+			throw new IllegalArgumentException("Recipe " + name + " produces nothing");
+		}
+		return new Recipe(name, time, power, inputs, outputs);
+	}
+
+	private static void check(String name, Map<Material, Double> amounts) {
+		for (Map.Entry<Material, Double> entry : amounts.entrySet()) {
+			Double amount = entry.getValue();
+			if (entry.getKey() == null || amount == null || !(amount > 0.0d) || amount.isInfinite()) {
+				throw new IllegalArgumentException("Recipe " + name + " has invalid amount " + amount
+						+ " of " + entry.getKey());
+			}
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return ticks per batch, as configured.
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * @return power consumed per tick at full rate.
+	 */
+	public double getPower() {
+		return power;
+	}
+
+	public int getInputCount() {
+		return inputs.length;
+	}
+
+	public Material getInput(int index) {
+		return inputs[index];
+	}
+
+	/**
+	 * @return amount of input <code>index</code> consumed per tick at full rate.
+	 */
+	public double getInputRate(int index) {
+		return inputRates[index];
+	}
+
+	public int getOutputCount() {
+		return outputs.length;
+	}
+
+	public Material getOutput(int index) {
+		return outputs[index];
+	}
+
+	/**
+	 * @return amount of output <code>index</code> produced per tick at full rate.
+	 */
+	public double getOutputRate(int index) {
+		return outputRates[index];
+	}
+
+	/**
+	 * Works out how many ticks of full rate production the inputs on hand support,
+	 * capped at <code>ticks</code>.
+	 *
+	 * @param available amount on hand of each input, in {@link #getInput(int)} order
+	 * @param availablePower power on hand; ignored if this recipe needs none
+	 * @param ticks the most ticks to run
+	 * @return ticks of production possible, between 0 and <code>ticks</code>.
+	 */
+	public double run(double[] available, double availablePower, double ticks) {
+		double run = ticks;
+		for (int i = 0; i < inputInverse.length; i++) {
+			run = Math.min(run, available[i] * inputInverse[i]);
+		}
+		if (power > 0.0d) {
+			run = Math.min(run, availablePower / power);
+		}
+		return run > 0.0d ? run : 0.0d;
+	}
+
+	@Override
+	public String toString() {
+		return "Recipe " + name;
+	}
+}
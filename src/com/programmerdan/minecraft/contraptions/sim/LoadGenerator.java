@@ -0,0 +1,288 @@
+package com.programmerdan.minecraft.contraptions.sim;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import com.programmerdan.minecraft.contraptions.ConfigurationReader;
+import com.programmerdan.minecraft.contraptions.ContraptionsConfiguration;
+import com.programmerdan.minecraft.contraptions.ContraptionsConfiguration.MonitorBase;
+import com.programmerdan.minecraft.contraptions.MonitorStrategy;
+import com.programmerdan.minecraft.contraptions.engine.ContraptionMonitor;
+import com.programmerdan.minecraft.contraptions.engine.FlowSolver;
+import com.programmerdan.minecraft.contraptions.engine.MonitorPool;
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+import com.programmerdan.minecraft.contraptions.graph.ContraptionGraph;
+import com.programmerdan.minecraft.contraptions.graph.PipeEdge;
+import com.programmerdan.minecraft.contraptions.rate.FixedPoint;
+import com.programmerdan.minecraft.contraptions.rate.Recipe;
+import com.programmerdan.minecraft.contraptions.time.TimeMeasure;
+import com.programmerdan.minecraft.contraptions.util.Footprint;
+import com.programmerdan.minecraft.contraptions.util.LocationKey;
+
+/**
+ * Builds synthetic Contraptions from stand-in Gadgets and runs the engine against them,
+ * headlessly, to find how much one server can sustain before players get there.
+ * 
+ * Each unit follows the design's example: a Chest, with <code>fanout</code> Converters
+ * each pulling Ore from it and Power from their own Generator, and pushing Product back.
+ * Units are chained by Collectors moving items chest to chest; with probability
+ * <code>cycles</code> a unit also gets a Collector back to an earlier unit, closing a cycle.
+ * 
+ * Two phases are measured: the solver alone, single threaded, for per-update latency;
+ * then the monitor pool for a while, for throughput against what the configured update
+ * frequency demands.
+ * 
+ * Options are <code>key=value</code>: gadgets (1000), size (gadgets per contraption, 50),
+ * fanout (2), cycles (0.1), monitors (4), frequency (ticks, 10), seconds (10), seed (1),
+ * parallelism (0), threshold (2000), scheduled (true) and fixed (fixed-point bits, -1 for off), as for the
+ * monitor configuration; and players (0), the number of owners to deal Contraptions out
+ * to, so the per-player footprint cap comes into play. Converters run
+ * {@link SimGadgetFactory#SMELTER}, or the recipe named by recipe, compiled from the
+ * <code>recipes</code> section of the config file given as recipes; each chest starts
+ * stocked with that recipe's inputs.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class LoadGenerator {
+	private final SimGadgetFactory factory;
+	private final Recipe recipe;
+	private final Random random;
+	private final int fanout;
+	private final double cycles;
+
+	public LoadGenerator(long seed, int fanout, double cycles) {
+		this(seed, fanout, cycles, new SimGadgetFactory(), SimGadgetFactory.SMELTER.getName());
+	}
+
+	/**
+	 * @param factory builds the stand-in Gadgets
+	 * @param recipe name of the recipe every Converter runs
+	 * @throws IllegalArgumentException if <code>factory</code> knows no such recipe
+	 */
+	public LoadGenerator(long seed, int fanout, double cycles, SimGadgetFactory factory, String recipe) {
+		this.factory = factory;
+		this.recipe = factory.getRecipe(recipe);
+		this.random = new Random(seed);
+		this.fanout = Math.max(1, fanout);
+		this.cycles = cycles;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap<String, String>();
+		for (String arg : args) {
+			int split = arg.indexOf('=');
+			if (split > 0) {
+				options.put(arg.substring(0, split), arg.substring(split + 1));
+			}
+		}
+		int gadgets = Integer.parseInt(option(options, "gadgets", "1000"));
+		int size = Integer.parseInt(option(options, "size", "50"));
+		int monitors = Integer.parseInt(option(options, "monitors", "4"));
+		long frequency = Long.parseLong(option(options, "frequency", "10"));
+		int seconds = Integer.parseInt(option(options, "seconds", "10"));
+		int parallelism = Integer.parseInt(option(options, "parallelism", "0"));
+		int threshold = Integer.parseInt(option(options, "threshold", "2000"));
+		boolean scheduled = Boolean.parseBoolean(option(options, "scheduled", "true"));
+		int fixed = Integer.parseInt(option(options, "fixed", String.valueOf(FixedPoint.OFF)));
+		int players = Integer.parseInt(option(options, "players", "0"));
+
+		ContraptionsConfiguration config = null;
+		if (options.containsKey("recipes")) {
+			config = new ContraptionsConfiguration();
+			YamlConfiguration file = YamlConfiguration.loadConfiguration(new File(options.get("recipes")));
+			ConfigurationReader.readRecipes(file.getConfigurationSection("recipes"), config);
+		}
+
+		LoadGenerator generator = new LoadGenerator(Long.parseLong(option(options, "seed", "1")),
+				Integer.parseInt(option(options, "fanout", "2")),
+				Double.parseDouble(option(options, "cycles", "0.1")),
+				new SimGadgetFactory(config), option(options, "recipe", SimGadgetFactory.SMELTER.getName()));
+		List<Contraption> contraptions = generator.build(gadgets, size, players);
+		int built = 0;
+		for (Contraption contraption : contraptions) {
+			built += contraption.getGraph().getGadgets().size();
+		}
+		System.out.println(String.format("Built %d contraptions, %d gadgets", contraptions.size(), built));
+
+		ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool(parallelism) : null;
+		System.out.println(generator.measureSolver(new FlowSolver(pool, threshold,
+				FixedPoint.forBits(fixed)), contraptions,
+				new TimeMeasure(frequency), 5));
+		long footprint = 0L;
+		for (Contraption contraption : contraptions) {
+			footprint += contraption.estimateFootprint();
+		}
+		System.out.println(String.format("Footprint: ~%s retained, %s per gadget", Footprint.format(footprint),
+				Footprint.format(built == 0 ? 0L : footprint / built)));
+		if (pool != null) {
+			pool.shutdown();
+		}
+
+		MonitorBase settings = new ContraptionsConfiguration().getMonitors();
+		settings.setCount(monitors);
+		settings.setUpdateFrequency(frequency);
+		settings.setStrategy(MonitorStrategy.round_robin_fair);
+		settings.setParallelism(parallelism);
+		settings.setParallelThreshold(threshold);
+		settings.setScheduledUpdates(scheduled);
+		settings.setFixedPointBits(fixed);
+		System.out.println(generator.measureMonitors(contraptions, settings, seconds));
+	}
+
+	/**
+	 * Builds Contraptions totalling roughly <code>gadgets</code> Gadgets, about
+	 * <code>size</code> Gadgets each, with no owners.
+	 */
+	public List<Contraption> build(int gadgets, int size) {
+		return build(gadgets, size, 0);
+	}
+
+	/**
+	 * As {@link #build(int, int)}, dealing the Contraptions out in turn to
+	 * <code>players</code> owners, if any.
+	 */
+	public List<Contraption> build(int gadgets, int size, int players) {
+		int perUnit = 1 + 2 * fanout;
+		int unitsPer = Math.max(1, size / perUnit);
+		int units = Math.max(1, gadgets / perUnit);
+		List<Contraption> contraptions = new ArrayList<Contraption>();
+		for (int id = 0; units > 0; id++) {
+			int count = Math.min(units, unitsPer);
+			UUID owner = players > 0 ? new UUID(0L, id % players) : null;
+			contraptions.add(new Contraption(id, buildGraph(id, count), owner, 0L));
+			units -= count;
+		}
+		return contraptions;
+	}
+
+	private ContraptionGraph buildGraph(int id, int units) {
+		ContraptionGraph graph = new ContraptionGraph();
+		int[] next = new int[] {0};
+		List<SimContainer> chests = new ArrayList<SimContainer>(units);
+		List<Long> chestKeys = new ArrayList<Long>(units);
+		for (int u = 0; u < units; u++) {
+			SimContainer chest = factory.container();
+			for (int i = 0; i < recipe.getInputCount(); i++) {
+				chest.add(recipe.getInput(i), 1000.0d);
+			}
+			long chestKey = place(graph, id, next, chest);
+			for (int f = 0; f < fanout; f++) {
+				SimConverter converter = factory.converter(recipe.getName());
+				SimGenerator furnace = factory.generator();
+				furnace.add(SimGadgetFactory.FUEL, 64.0d);
+				long converterKey = place(graph, id, next, converter);
+				long furnaceKey = place(graph, id, next, furnace);
+				connect(graph, chestKey, converterKey);
+				connect(graph, furnaceKey, converterKey);
+				converter.inputLink(chest);
+				converter.inputLink(furnace);
+				converter.outputLink(chest);
+				furnace.outputLink(converter);
+			}
+			if (u > 0) {
+				collect(graph, id, next, chests.get(u - 1), chestKeys.get(u - 1), chest, chestKey);
+				if (u > 1 && random.nextDouble() < cycles) {
+					int back = random.nextInt(u - 1);
+					collect(graph, id, next, chest, chestKey, chests.get(back), chestKeys.get(back));
+				}
+			}
+			chests.add(chest);
+			chestKeys.add(chestKey);
+		}
+		return graph;
+	}
+
+	private void collect(ContraptionGraph graph, int id, int[] next,
+			SimContainer from, long fromKey, SimContainer to, long toKey) {
+		SimCollector collector = factory.collector();
+		long key = place(graph, id, next, collector);
+		connect(graph, fromKey, key);
+		connect(graph, key, toKey);
+		collector.inputLink(from);
+		collector.outputLink(to);
+	}
+
+	private static long place(ContraptionGraph graph, int id, int[] next, GadgetBase gadget) {
+		// synthetic, unique positions; one contraption per Z row.
+		long key = LocationKey.of(next[0]++, 0, id);
+		graph.addGadget(key, gadget);
+		return key;
+	}
+
+	private static void connect(ContraptionGraph graph, long aKey, long bKey) {
+		graph.addEdge(new PipeEdge(aKey, bKey, 4.0d, new long[0]));
+	}
+
+	/**
+	 * Solves every Contraption <code>rounds</code> times, single threaded.
+	 */
+	public String measureSolver(FlowSolver solver, List<Contraption> contraptions, TimeMeasure span, int rounds) {
+		long[] latencies = new long[contraptions.size() * rounds];
+		int n = 0;
+		long started = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			for (Contraption contraption : contraptions) {
+				long t = System.nanoTime();
+				solver.solve(contraption.getGraph(), span);
+				latencies[n++] = System.nanoTime() - t;
+			}
+		}
+		long elapsed = System.nanoTime() - started;
+		Arrays.sort(latencies);
+		return String.format("Solver: %d updates in %.1f ms, %.0f updates/s; p50 %.1f us, p90 %.1f us, p99 %.1f us, max %.1f us",
+				latencies.length, elapsed / 1e6, latencies.length / (elapsed / 1e9),
+				percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.90) / 1e3,
+				percentile(latencies, 0.99) / 1e3, latencies[latencies.length - 1] / 1e3);
+	}
+
+	/**
+	 * Runs the monitor pool over every Contraption for <code>seconds</code>, and compares
+	 * the updates achieved against the updates a fixed schedule would call for. With
+	 * scheduled updates, fewer is expected; idle Contraptions aren't updated. The
+	 * footprint caps are applied once, up front.
+	 */
+	public String measureMonitors(List<Contraption> contraptions, MonitorBase settings, int seconds)
+			throws InterruptedException {
+		MonitorPool pool = new MonitorPool(settings, Logger.getLogger(LoadGenerator.class.getName()));
+		for (Contraption contraption : contraptions) {
+			pool.add(contraption);
+		}
+		pool.getFootprint().audit(settings, contraptions);
+		Thread.sleep(seconds * 1000L);
+		pool.shutdown();
+
+		long updates = 0;
+		long busy = 0;
+		for (ContraptionMonitor monitor : pool.getMonitors()) {
+			updates += monitor.getUpdates();
+			busy += monitor.getUpdateNanos();
+		}
+		double demanded = contraptions.size() * (1000.0d / (settings.getUpdateFrequency() * MonitorPool.TICK_MILLIS)) * seconds;
+		double utilization = busy / (seconds * 1e9 * settings.getCount());
+		long sustainable = utilization <= 0.0d ? Long.MAX_VALUE : (long) (contraptions.size() / utilization);
+		return String.format("Monitors: %d of %.0f fixed-schedule updates in %d s (%.0f%%), %d threads %.1f%% busy; "
+				+ "roughly %d contraptions of this shape sustainable; %d over a footprint cap",
+				updates, demanded, seconds, 100.0d * updates / demanded, settings.getCount(),
+				100.0d * utilization, sustainable, pool.getFootprint().getOverCap());
+	}
+
+	private static String option(Map<String, String> options, String key, String fallback) {
+		return options.containsKey(key) ? options.get(key) : fallback;
+	}
+
+	private static double percentile(long[] sorted, double fraction) {
+		return sorted[(int) Math.min(sorted.length - 1, Math.floor(sorted.length * fraction))];
+	}
+}
@@ -0,0 +1,42 @@
+package com.programmerdan.minecraft.contraptions.sim;
+
+import org.bukkit.Material;
+
+import com.programmerdan.minecraft.contraptions.grid.Resource;
+
+/**
+ * Stand-in Battery: stores Power for its grid and nothing else. While on a grid its
+ * charge is held by the grid; it gets its share back when the grid is dissolved.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class SimBattery extends SimGadget {
+
+	/**
+	 * @param capacity the most Power held
+	 */
+	public SimBattery(double capacity) {
+		super(Material.GLOWSTONE, capacity);
+	}
+
+	@Override
+	public boolean isGridMember(Resource resource) {
+		return resource == Resource.POWER;
+	}
+
+	@Override
+	public double getGridCapacity(Resource resource) {
+		return capacity;
+	}
+
+	@Override
+	public double getGridStored(Resource resource) {
+		return getStored(POWER);
+	}
+
+	@Override
+	public void setGridStored(Resource resource, double stored) {
+		add(POWER, stored - getStored(POWER));
+	}
+}
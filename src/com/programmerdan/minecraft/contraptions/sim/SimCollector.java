@@ -0,0 +1,55 @@
+package com.programmerdan.minecraft.contraptions.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Material;
+
+import com.programmerdan.minecraft.contraptions.rate.PipedRate;
+import com.programmerdan.minecraft.contraptions.time.TimeMeasure;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+
+/**
+ * Stand-in Collector, e.g. a Hopper done right. Pulls any item from its inputs and pushes
+ * it on to its outputs, up to a throughput per tick. Holds at most one tick's worth in
+ * transit, so it stops pulling when it can't push.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class SimCollector extends SimGadget {
+	private final double throughput;
+
+	/**
+	 * @param throughput items per tick moved
+	 */
+	public SimCollector(double throughput) {
+		super(Material.HOPPER, throughput);
+		this.throughput = throughput;
+	}
+
+	@Override
+	public boolean hasInputPull() {
+		return true;
+	}
+
+	@Override
+	public List<PipedRate> getInputPull(TimeMeasure overTime) {
+		double room = Math.max(0.0d, capacity - getStored());
+		return rates(rate((Material) null, Math.min(room, throughput * overTime.getLength()), overTime));
+	}
+
+	@Override
+	public boolean hasOutputPush() {
+		return !storage.isEmpty();
+	}
+
+	@Override
+	public List<PipedRate> getOutputPush(TimeMeasure overTime) {
+		List<PipedRate> pushed = new ArrayList<PipedRate>(storage.size());
+		for (AdvItemStack stack : storage.snapshot()) {
+			pushed.add(rate(stack, stack.getSize(), overTime));
+		}
+		return pushed;
+	}
+}
@@ -0,0 +1,56 @@
+package com.programmerdan.minecraft.contraptions.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Material;
+
+import com.programmerdan.minecraft.contraptions.rate.PipedRate;
+import com.programmerdan.minecraft.contraptions.time.TimeMeasure;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+
+/**
+ * Stand-in Container, e.g. a Chest. Passive: accepts any item until full, and offers
+ * its contents, both limited to a throughput per tick. Never pushes or pulls.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class SimContainer extends SimGadget {
+	private final double throughput;
+
+	/**
+	 * @param capacity items held when full
+	 * @param throughput items per tick in, and items per tick out
+	 */
+	public SimContainer(double capacity, double throughput) {
+		super(Material.CHEST, capacity);
+		this.throughput = throughput;
+	}
+
+	@Override
+	public boolean hasMaximumInput() {
+		return true;
+	}
+
+	@Override
+	public List<PipedRate> getMaximumInput(TimeMeasure overTime) {
+		double room = Math.max(0.0d, capacity - getStored());
+		return rates(rate((Material) null, Math.min(room, throughput * overTime.getLength()), overTime));
+	}
+
+	@Override
+	public boolean hasMaximumOutput() {
+		return true;
+	}
+
+	@Override
+	public List<PipedRate> getMaximumOutput(TimeMeasure overTime) {
+		double limit = throughput * overTime.getLength();
+		List<PipedRate> offered = new ArrayList<PipedRate>(storage.size());
+		for (AdvItemStack stack : storage.snapshot()) {
+			offered.add(rate(stack, Math.min(limit, stack.getSize()), overTime));
+		}
+		return offered;
+	}
+}
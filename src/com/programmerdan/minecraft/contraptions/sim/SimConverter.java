@@ -0,0 +1,197 @@
+package com.programmerdan.minecraft.contraptions.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Material;
+
+import com.programmerdan.minecraft.contraptions.grid.Resource;
+import com.programmerdan.minecraft.contraptions.rate.PipedRate;
+import com.programmerdan.minecraft.contraptions.rate.Recipe;
+import com.programmerdan.minecraft.contraptions.time.TimeMeasure;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+import com.programmerdan.minecraft.contraptions.util.Footprint;
+
+/**
+ * Stand-in Converter, e.g. a Crafting Bench running one recipe. Pulls each recipe
+ * input at its recipe rate into an internal buffer, converts whatever full or partial
+ * batches the buffer allows, and pushes the outputs. Power is held as
+ * {@link SimGadget#POWER}; on a Power grid, the Converter asks the grid for its recipe
+ * rate until a couple of seconds' worth is buffered, otherwise it pulls Power like any
+ * other input.
+ * <br>
+ * Each Converter keeps one rate per recipe input and output, built once from the shared
+ * {@link Recipe}, and refreshes them in place on every query. The lists returned by
+ * {@link #getInputPull} and {@link #getOutputPush} are its own, and only hold until the
+ * next query of the same kind.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class SimConverter extends SimGadget {
+	private final Recipe recipe;
+	private final double[] available;
+	private final double powerBuffer;
+	private final PipedRate[] pullRates;
+	private final PipedRate[] pushRates;
+	private final List<PipedRate> pulled;
+	private final List<PipedRate> pushed;
+	private boolean hungry;
+
+	/**
+	 * @param recipe the shared recipe this Converter runs
+	 */
+	public SimConverter(Recipe recipe) {
+		super(Material.WORKBENCH, bufferFor(recipe));
+		this.recipe = recipe;
+		this.available = new double[recipe.getInputCount()];
+		this.powerBuffer = recipe.getPower() * 40.0d;
+		// the last pull slot is Power.
+		this.pullRates = new PipedRate[recipe.getInputCount() + 1];
+		for (int i = 0; i < recipe.getInputCount(); i++) {
+			pullRates[i] = rate(recipe.getInput(i), 0.0d, TimeMeasure.ONE);
+		}
+		pullRates[recipe.getInputCount()] = rate(POWER, 0.0d, TimeMeasure.ONE);
+		this.pushRates = new PipedRate[recipe.getOutputCount()];
+		for (int i = 0; i < recipe.getOutputCount(); i++) {
+			pushRates[i] = rate(recipe.getOutput(i), 0.0d, TimeMeasure.ONE);
+		}
+		this.pulled = new ArrayList<PipedRate>(pullRates.length);
+		this.pushed = new ArrayList<PipedRate>(pushRates.length);
+	}
+
+	public Recipe getRecipe() {
+		return recipe;
+	}
+
+	@Override
+	public String getSpec() {
+		return recipe.getName();
+	}
+
+	@Override
+	public boolean hasInputPull() {
+		return true;
+	}
+
+	@Override
+	public List<PipedRate> getInputPull(TimeMeasure overTime) {
+		double ticks = overTime.getLength();
+		pulled.clear();
+		for (int i = 0; i < recipe.getInputCount(); i++) {
+			double want = recipe.getInputRate(i) * ticks - getStored(recipe.getInput(i));
+			if (want > 0.0d) {
+				pulled.add(refresh(pullRates[i], want, overTime));
+			}
+		}
+		double power = recipe.getPower() * ticks - getStored(POWER);
+		if (power > 0.0d && grid == null) {
+			pulled.add(refresh(pullRates[recipe.getInputCount()], power, overTime));
+		}
+		return pulled;
+	}
+
+	@Override
+	public boolean hasOutputPush() {
+		for (int i = 0; i < recipe.getOutputCount(); i++) {
+			if (getStored(recipe.getOutput(i)) > 0.0d) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public List<PipedRate> getOutputPush(TimeMeasure overTime) {
+		pushed.clear();
+		for (int i = 0; i < recipe.getOutputCount(); i++) {
+			double ready = getStored(recipe.getOutput(i));
+			if (ready > 0.0d) {
+				pushed.add(refresh(pushRates[i], ready, overTime));
+			}
+		}
+		return pushed;
+	}
+
+	@Override
+	public long getFootprint() {
+		int slots = pullRates.length + pushRates.length;
+		// each slot: its rate, stack and ItemStack, plus its place in a slot array and a list.
+		return super.getFootprint() + 6 * Footprint.REFERENCE + Footprint.array(available.length, 8L)
+				+ slots * (2 * Footprint.OBJECT + 4 * Footprint.REFERENCE + Footprint.ITEM_STACK)
+				+ 2 * Footprint.array(slots, Footprint.REFERENCE) + 2 * Footprint.OBJECT;
+	}
+
+	private static PipedRate refresh(PipedRate rate, double amount, TimeMeasure time) {
+		rate.getResource().setSize(amount);
+		rate.setTime(time);
+		return rate;
+	}
+
+	@Override
+	protected void afterAdjust(TimeMeasure time) {
+		for (int i = 0; i < available.length; i++) {
+			available[i] = getStored(recipe.getInput(i));
+		}
+		double run = recipe.run(available, getStored(POWER), time.getLength());
+		if (run <= 0.0d) {
+			checkHunger();
+			return;
+		}
+		for (int i = 0; i < recipe.getInputCount(); i++) {
+			add(recipe.getInput(i), -recipe.getInputRate(i) * run);
+		}
+		if (recipe.getPower() > 0.0d) {
+			add(POWER, -recipe.getPower() * run);
+		}
+		for (int i = 0; i < recipe.getOutputCount(); i++) {
+			add(recipe.getOutput(i), recipe.getOutputRate(i) * run);
+		}
+		checkHunger();
+	}
+
+	/**
+	 * Demand only changes when the Power buffer fills or starts to drain; the grid is only
+	 * told then. <code>hungry</code> is whatever the grid last read.
+	 */
+	private void checkHunger() {
+		if (grid != null && (getStored(POWER) < powerBuffer) != hungry) {
+			grid.invalidate();
+		}
+	}
+
+	@Override
+	public boolean isGridMember(Resource resource) {
+		return resource == Resource.POWER && recipe.getPower() > 0.0d;
+	}
+
+	@Override
+	public double getGridDemand(Resource resource) {
+		hungry = getStored(POWER) < powerBuffer;
+		return hungry ? recipe.getPower() : 0.0d;
+	}
+
+	@Override
+	public void setStorage(List<AdvItemStack> stacks) {
+		super.setStorage(stacks);
+		checkHunger();
+	}
+
+	@Override
+	public void gridDeliver(Resource resource, double amount) {
+		add(POWER, amount);
+		checkHunger();
+	}
+
+	private static double bufferFor(Recipe recipe) {
+		double buffer = recipe.getPower();
+		for (int i = 0; i < recipe.getInputCount(); i++) {
+			buffer += recipe.getInputRate(i);
+		}
+		for (int i = 0; i < recipe.getOutputCount(); i++) {
+			buffer += recipe.getOutputRate(i);
+		}
+		// room for a long update's worth of inputs and outputs in flight.
+		return buffer * 1200.0d;
+	}
+}
@@ -0,0 +1,360 @@
+package com.programmerdan.minecraft.contraptions.sim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.gadget.GadgetInput;
+import com.programmerdan.minecraft.contraptions.gadget.GadgetOutput;
+import com.programmerdan.minecraft.contraptions.gadget.ItemStore;
+import com.programmerdan.minecraft.contraptions.grid.GridMember;
+import com.programmerdan.minecraft.contraptions.grid.Resource;
+import com.programmerdan.minecraft.contraptions.grid.ResourceGrid;
+import com.programmerdan.minecraft.contraptions.rate.PipedRate;
+import com.programmerdan.minecraft.contraptions.time.TimeMeasure;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+import com.programmerdan.minecraft.contraptions.util.Footprint;
+
+/**
+ * Common ground for the headless stand-in Gadgets: a bounded {@link ItemStore}, explicit
+ * links, and no private storage. Subclasses decide what they push, pull, offer and accept,
+ * and whether they join Power grids.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public abstract class SimGadget extends GadgetBase implements GridMember {
+	/**
+	 * Stands in for Resource:Power until virtual Resources have their own representation.
+	 */
+	public static final Material POWER = Material.REDSTONE;
+
+	protected final ItemStore storage;
+	protected final double capacity;
+
+	private final List<GadgetInput> outputs = new ArrayList<GadgetInput>();
+	private final List<GadgetOutput> inputs = new ArrayList<GadgetOutput>();
+	protected ResourceGrid grid;
+
+	protected SimGadget(Material type, double capacity) {
+		super(null, type);
+		this.capacity = capacity;
+		this.storage = new ItemStore(capacity);
+	}
+
+	public double getCapacity() {
+		return capacity;
+	}
+
+	public double getStored() {
+		return storage.getTotal();
+	}
+
+	public double getStored(Material material) {
+		return storage.get(ItemStore.keyOf(material));
+	}
+
+	@Override
+	public long getFootprint() {
+		return super.getFootprint() + 5 * Footprint.REFERENCE + storage.getFootprint()
+				+ 2 * Footprint.OBJECT + Footprint.array(Math.max(10, outputs.size()), Footprint.REFERENCE)
+				+ Footprint.array(Math.max(10, inputs.size()), Footprint.REFERENCE);
+	}
+
+	/**
+	 * Replaces storage wholesale, e.g. from a trace snapshot.
+	 */
+	public void setStorage(List<AdvItemStack> stacks) {
+		storage.setAll(stacks);
+	}
+
+	/**
+	 * Called after each storage adjustment; Gadgets that transform their contents do so here.
+	 */
+	protected void afterAdjust(TimeMeasure time) {
+	}
+
+	/**
+	 * Adds, or removes if negative; whatever doesn't fit is discarded.
+	 */
+	protected void add(Material material, double amount) {
+		storage.add(ItemStore.keyOf(material), amount);
+	}
+
+	protected static PipedRate rate(Material material, double amount, TimeMeasure time) {
+		return new PipedRate(new AdvItemStack(material == null ? null : new ItemStack(material), amount), time);
+	}
+
+	/**
+	 * @return a rate of <code>amount</code> of the same item and meta as <code>stack</code>.
+	 */
+	protected static PipedRate rate(AdvItemStack stack, double amount, TimeMeasure time) {
+		return new PipedRate(new AdvItemStack(stack.getType(), amount, stack.getMeta()), time);
+	}
+
+	protected static List<PipedRate> rates(PipedRate... rates) {
+		List<PipedRate> list = new ArrayList<PipedRate>(rates.length);
+		Collections.addAll(list, rates);
+		return list;
+	}
+
+	// Storage
+
+	@Override
+	public boolean hasStorage() {
+		return true;
+	}
+
+	@Override
+	public void adjustStorage(List<PipedRate> inflow, List<PipedRate> outflow, TimeMeasure time) {
+		for (PipedRate rate : outflow) {
+			storage.remove(rate.getResourceOverTime(time));
+		}
+		for (PipedRate rate : inflow) {
+			storage.add(rate.getResourceOverTime(time));
+		}
+		afterAdjust(time);
+	}
+
+	@Override
+	public void adjustStorageInstant(List<PipedRate> inflow, List<PipedRate> outflow) {
+		adjustStorage(inflow, outflow, TimeMeasure.ONE);
+	}
+
+	@Override
+	public List<AdvItemStack> getStorage() {
+		return storage.snapshot();
+	}
+
+	@Override
+	public List<AdvItemStack> emulateAdjustStorage(List<PipedRate> inflow, List<PipedRate> outflow, TimeMeasure time) {
+		storage.mark();
+		try {
+			adjustStorage(inflow, outflow, time);
+			return getStorage();
+		} finally {
+			storage.rollback();
+		}
+	}
+
+	@Override
+	public TimeMeasure timeFitAdjustStorage(List<PipedRate> inflow, List<PipedRate> outflow) {
+		Map<ItemStore.Key, Double> net = new HashMap<ItemStore.Key, Double>();
+		double totalIn = 0.0d;
+		for (PipedRate rate : inflow) {
+			double perUnit = perUnit(rate);
+			totalIn += perUnit;
+			accumulate(net, ItemStore.keyOf(rate.getResource()), perUnit);
+		}
+		for (PipedRate rate : outflow) {
+			double perUnit = perUnit(rate);
+			totalIn -= perUnit;
+			accumulate(net, ItemStore.keyOf(rate.getResource()), -perUnit);
+		}
+		double fit = Double.POSITIVE_INFINITY;
+		for (Map.Entry<ItemStore.Key, Double> entry : net.entrySet()) {
+			if (entry.getValue() < 0.0d) {
+				fit = Math.min(fit, storage.get(entry.getKey()) / -entry.getValue());
+			}
+		}
+		if (totalIn > 0.0d) {
+			fit = Math.min(fit, storage.getFree() / totalIn);
+		}
+		return new TimeMeasure(fit);
+	}
+
+	private static double perUnit(PipedRate rate) {
+		double length = rate.getTime().getLength();
+		return length == 0.0d ? 0.0d : rate.getResource().getSize() / length;
+	}
+
+	private static void accumulate(Map<ItemStore.Key, Double> net, ItemStore.Key key, double amount) {
+		Double current = net.get(key);
+		net.put(key, current == null ? amount : current + amount);
+	}
+
+	// No private storage
+
+	@Override
+	public boolean hasPrivateStorage() {
+		return false;
+	}
+
+	@Override
+	public void adjustPrivateStorage(List<PipedRate> inflow, List<PipedRate> outflow, TimeMeasure time) {
+	}
+
+	@Override
+	public void adjustPrivateStorageInstant(List<PipedRate> inflow, List<PipedRate> outflow) {
+	}
+
+	@Override
+	public List<AdvItemStack> getPrivateStorage() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public List<AdvItemStack> emulateAdjustPrivateStorage(List<PipedRate> inflow, List<PipedRate> outflow, TimeMeasure time) {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public TimeMeasure timeFitAdjustPrivateStorage(List<PipedRate> inflow, List<PipedRate> outflow) {
+		return new TimeMeasure(Double.POSITIVE_INFINITY);
+	}
+
+	// Power grid; stand-ins only ever carry Power, held in storage as POWER.
+
+	@Override
+	public boolean isGridMember(Resource resource) {
+		return false;
+	}
+
+	@Override
+	public double getGridSupply(Resource resource) {
+		return 0.0d;
+	}
+
+	@Override
+	public double getGridDemand(Resource resource) {
+		return 0.0d;
+	}
+
+	@Override
+	public double getGridCapacity(Resource resource) {
+		return 0.0d;
+	}
+
+	@Override
+	public double getGridStored(Resource resource) {
+		return 0.0d;
+	}
+
+	@Override
+	public void setGridStored(Resource resource, double stored) {
+	}
+
+	@Override
+	public double gridDraw(Resource resource, double amount) {
+		return 0.0d;
+	}
+
+	@Override
+	public void gridDeliver(Resource resource, double amount) {
+		add(POWER, amount);
+	}
+
+	@Override
+	public void setGrid(Resource resource, ResourceGrid grid) {
+		this.grid = grid;
+	}
+
+	@Override
+	public ResourceGrid getGrid(Resource resource) {
+		return grid;
+	}
+
+	// Links
+
+	@Override
+	public void inputLink(GadgetOutput link) {
+		if (!inputs.contains(link)) {
+			inputs.add(link);
+		}
+	}
+
+	@Override
+	public void inputUnlink(GadgetOutput link) {
+		inputs.remove(link);
+	}
+
+	@Override
+	public List<GadgetOutput> getInputLinks() {
+		return inputs;
+	}
+
+	@Override
+	public void outputLink(GadgetInput link) {
+		if (!outputs.contains(link)) {
+			outputs.add(link);
+		}
+	}
+
+	@Override
+	public void outputUnlink(GadgetInput link) {
+		outputs.remove(link);
+	}
+
+	@Override
+	public List<GadgetInput> getOutputLinks() {
+		return outputs;
+	}
+
+	// Defaults: neither pushes, pulls, offers nor accepts.
+
+	@Override
+	public boolean hasInputPull() {
+		return false;
+	}
+
+	@Override
+	public List<PipedRate> getInputPull(TimeMeasure overTime) {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public List<PipedRate> getInstantInputPull() {
+		return getInputPull(TimeMeasure.ONE);
+	}
+
+	@Override
+	public boolean hasMaximumInput() {
+		return false;
+	}
+
+	@Override
+	public List<PipedRate> getMaximumInput(TimeMeasure overTime) {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public List<PipedRate> getMaximumInstantInput() {
+		return getMaximumInput(TimeMeasure.ONE);
+	}
+
+	@Override
+	public boolean hasOutputPush() {
+		return false;
+	}
+
+	@Override
+	public List<PipedRate> getOutputPush(TimeMeasure overTime) {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public List<PipedRate> getInstantOutputPush() {
+		return getOutputPush(TimeMeasure.ONE);
+	}
+
+	@Override
+	public boolean hasMaximumOutput() {
+		return false;
+	}
+
+	@Override
+	public List<PipedRate> getMaximumOutput(TimeMeasure overTime) {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public List<PipedRate> getMaximumInstantOutput() {
+		return getMaximumOutput(TimeMeasure.ONE);
+	}
+}
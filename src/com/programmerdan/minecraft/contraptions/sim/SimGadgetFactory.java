@@ -0,0 +1,130 @@
+package com.programmerdan.minecraft.contraptions.sim;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Material;
+
+import com.programmerdan.minecraft.contraptions.Contraptions;
+import com.programmerdan.minecraft.contraptions.ContraptionsConfiguration;
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.rate.Recipe;
+import com.programmerdan.minecraft.contraptions.trace.GadgetFactory;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+
+/**
+ * Builds stand-in Gadgets, both for {@link LoadGenerator} and for replaying traces
+ * headlessly. Recorded Gadget kinds map onto stand-ins by block Material; storage
+ * snapshots are restored as-is.
+ * <br>
+ * Converters run recipes by name, from the configured recipes (see
+ * {@link ContraptionsConfiguration#getRecipe(String)}), so a recorded Converter comes
+ * back running what it ran. {@link #SMELTER} is always known, unless configuration
+ * replaces it.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class SimGadgetFactory implements GadgetFactory {
+	public static final Material ORE = Material.IRON_ORE;
+	public static final Material PRODUCT = Material.IRON_INGOT;
+	public static final Material FUEL = Material.COAL;
+
+	/**
+	 * A smelter: 1 Ore and 2 Power into 1 Product, every 20 ticks.
+	 */
+	public static final Recipe SMELTER = Recipe.compile("smelt_iron", 20.0d, 2.0d,
+			Collections.singletonMap(ORE, 1.0d), Collections.singletonMap(PRODUCT, 1.0d));
+
+	private final Map<String, Recipe> recipes = new LinkedHashMap<String, Recipe>();
+
+	/**
+	 * A factory knowing the plugin's configured recipes, if it is running; otherwise only
+	 * {@link #SMELTER}.
+	 */
+	public SimGadgetFactory() {
+		this(Contraptions.config());
+	}
+
+	/**
+	 * @param config the configuration whose recipes Converters run, or null for only
+	 *     {@link #SMELTER}
+	 */
+	public SimGadgetFactory(ContraptionsConfiguration config) {
+		recipes.put(SMELTER.getName(), SMELTER);
+		if (config != null) {
+			recipes.putAll(config.getRecipes());
+		}
+	}
+
+	/**
+	 * @return the recipe called <code>name</code>.
+	 * @throws IllegalArgumentException if there is none
+	 */
+	public Recipe getRecipe(String name) {
+		Recipe recipe = recipes.get(name);
+		if (recipe == null) {
+			throw new IllegalArgumentException("No recipe " + name);
+		}
+		return recipe;
+	}
+
+	public SimContainer container() {
+		return new SimContainer(1728.0d, 8.0d);
+	}
+
+	public SimCollector collector() {
+		return new SimCollector(1.0d);
+	}
+
+	public SimConverter converter() {
+		return converter(SMELTER.getName());
+	}
+
+	/**
+	 * @param recipe name of the recipe to run
+	 * @throws IllegalArgumentException if there is no such recipe
+	 */
+	public SimConverter converter(String recipe) {
+		return new SimConverter(getRecipe(recipe));
+	}
+
+	/**
+	 * A furnace: 1 Power per 20 ticks, burning 1 Fuel per Power.
+	 */
+	public SimGenerator generator() {
+		return new SimGenerator(FUEL, 64.0d, 1.0d / 20.0d, 1.0d);
+	}
+
+	public SimBattery battery() {
+		return new SimBattery(1000.0d);
+	}
+
+	@Override
+	public GadgetBase create(String kind, Material type, String spec, long key) {
+		if (type == null) {
+			return container();
+		}
+		switch (type) {
+		case HOPPER:
+			return collector();
+		case WORKBENCH:
+			return spec == null ? converter() : converter(spec);
+		case FURNACE:
+			return generator();
+		case GLOWSTONE:
+			return battery();
+		default:
+			return container();
+		}
+	}
+
+	@Override
+	public void restoreStorage(GadgetBase gadget, List<AdvItemStack> storage) {
+		if (gadget instanceof SimGadget) {
+			((SimGadget) gadget).setStorage(storage);
+		}
+	}
+}
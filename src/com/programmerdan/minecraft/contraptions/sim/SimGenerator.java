@@ -0,0 +1,123 @@
+package com.programmerdan.minecraft.contraptions.sim;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.bukkit.Material;
+
+import com.programmerdan.minecraft.contraptions.grid.Resource;
+import com.programmerdan.minecraft.contraptions.rate.PipedRate;
+import com.programmerdan.minecraft.contraptions.time.TimeMeasure;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+
+/**
+ * Stand-in Generator, e.g. a Furnace burning Coal. Supplies its Power grid while it has
+ * fuel, or pushes Power directly if it isn't on one; each unit of Power drawn burns a
+ * fixed amount of fuel. Accepts fuel until full.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class SimGenerator extends SimGadget {
+	private final Material fuel;
+	private final double power;
+	private final double fuelPerPower;
+	private boolean fuelled;
+
+	/**
+	 * @param fuel the Material burned
+	 * @param capacity fuel held when full
+	 * @param power Power pushed per tick
+	 * @param fuelPerPower fuel burned per unit of Power drawn
+	 */
+	public SimGenerator(Material fuel, double capacity, double power, double fuelPerPower) {
+		super(Material.FURNACE, capacity);
+		this.fuel = fuel;
+		this.power = power;
+		this.fuelPerPower = fuelPerPower;
+	}
+
+	@Override
+	public boolean hasOutputPush() {
+		return grid == null && getStored(fuel) > 0.0d;
+	}
+
+	@Override
+	public List<PipedRate> getOutputPush(TimeMeasure overTime) {
+		double most = getStored(fuel) / fuelPerPower;
+		return rates(rate(POWER, Math.min(most, power * overTime.getLength()), overTime));
+	}
+
+	@Override
+	public boolean hasMaximumInput() {
+		return true;
+	}
+
+	@Override
+	public List<PipedRate> getMaximumInput(TimeMeasure overTime) {
+		return rates(rate(fuel, Math.max(0.0d, capacity - getStored()), overTime));
+	}
+
+	@Override
+	public void adjustStorage(List<PipedRate> inflow, List<PipedRate> outflow, TimeMeasure time) {
+		for (PipedRate rate : outflow) {
+			AdvItemStack drawn = rate.getResourceOverTime(time);
+			if (drawn.getType().getType() == POWER) {
+				add(fuel, -drawn.getSize() * fuelPerPower);
+			}
+		}
+		for (PipedRate rate : inflow) {
+			AdvItemStack moved = rate.getResourceOverTime(time);
+			add(moved.getType().getType(), moved.getSize());
+		}
+		refuelled();
+	}
+
+	/**
+	 * Supply only changes when fuel runs out or arrives; the grid is only told then.
+	 * <code>fuelled</code> is whatever the grid last read.
+	 */
+	private void refuelled() {
+		if (grid != null && (getStored(fuel) > 0.0d) != fuelled) {
+			grid.invalidate();
+		}
+	}
+
+	@Override
+	public boolean isGridMember(Resource resource) {
+		return resource == Resource.POWER;
+	}
+
+	@Override
+	public double getGridSupply(Resource resource) {
+		fuelled = getStored(fuel) > 0.0d;
+		return fuelled ? power : 0.0d;
+	}
+
+	@Override
+	public double gridDraw(Resource resource, double amount) {
+		double burn = Math.min(getStored(fuel), amount * fuelPerPower);
+		add(fuel, -burn);
+		refuelled();
+		return burn / fuelPerPower;
+	}
+
+	@Override
+	public void setStorage(List<AdvItemStack> stacks) {
+		super.setStorage(stacks);
+		refuelled();
+	}
+
+	@Override
+	public TimeMeasure timeFitAdjustStorage(List<PipedRate> inflow, List<PipedRate> outflow) {
+		double burn = 0.0d;
+		for (PipedRate rate : outflow) {
+			if (rate.getResource().getType().getType() == POWER && rate.getTime().getLength() > 0.0d) {
+				burn += rate.getResource().getSize() / rate.getTime().getLength() * fuelPerPower;
+			}
+		}
+		double fit = burn > 0.0d ? getStored(fuel) / burn : Double.POSITIVE_INFINITY;
+		return new TimeMeasure(Math.min(fit, super.timeFitAdjustStorage(inflow,
+				Collections.<PipedRate>emptyList()).getLength()));
+	}
+}
@@ -0,0 +1,8 @@
+/**
+ * Headless stand-ins for Gadgets, and a synthetic load generator built from them, for
+ * measuring how far the engine scales without a server or real players.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+package com.programmerdan.minecraft.contraptions.sim;
@@ -0,0 +1,32 @@
+package com.programmerdan.minecraft.contraptions.trace;
+
+import java.util.List;
+
+import org.bukkit.Material;
+
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+
+/**
+ * Rebuilds Gadgets from what a trace recorded about them, for {@link TraceReplay}.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public interface GadgetFactory {
+
+	/**
+	 * @param kind the recorded kind of Gadget; its class name
+	 * @param type the recorded Material of its block, or null
+	 * @param spec the recorded {@link GadgetBase#getSpec() spec}, e.g. a recipe name; or null
+	 * @param key the packed location of its block
+	 * @return a Gadget standing in for the recorded one.
+	 * @throws IllegalArgumentException if <code>spec</code> names nothing this factory knows
+	 */
+	public GadgetBase create(String kind, Material type, String spec, long key);
+
+	/**
+	 * Replaces a rebuilt Gadget's storage with a recorded snapshot.
+	 */
+	public void restoreStorage(GadgetBase gadget, List<AdvItemStack> storage);
+}
@@ -0,0 +1,104 @@
+package com.programmerdan.minecraft.contraptions.trace;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Constants and primitive encodings shared by {@link TraceWriter} and {@link TraceReader}.
+ * 
+ * A trace is a GZIP stream: a header of {@link #MAGIC} and {@link #VERSION}, then
+ * records, each a single type byte followed by that record's fields. Strings are sent
+ * once, as a {@link #STRING} record, and referred to by index after.
+ * 
+ * Version 2 keeps everything needed to resume from a trace, not just replay it: stacks
+ * carry their item meta and full {@link com.programmerdan.minecraft.contraptions.util.AdvancedMeta},
+ * and Contraptions their owner, repair, wear and grid charge. Version 3 adds each
+ * Gadget's spec, so Converters come back running the recipe they ran; version 2 traces
+ * still read, with no specs. Version 4 adds the tick each Contraption was last updated
+ * to, so recovery resumes each from where its storage was, not from the checkpoint.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+final class TraceFormat {
+	static final int MAGIC = 0x43545243; // CTRC
+	static final short VERSION = 4;
+	/** oldest version still read */
+	static final short OLDEST = 2;
+
+	/** index, length, UTF-8 value */
+	static final byte STRING = 1;
+	/** server tick */
+	static final byte TICK = 2;
+	/** contraption id, gadgets (key, kind, material, spec), junctions (key, capacity), edges (a, b, capacity, blocks) */
+	static final byte GRAPH = 3;
+	/**
+	 * contraption id, gadget key, stacks (material, durability, item meta as YAML, meta,
+	 * size); meta is a flags byte, then if {@link #META} the player if {@link #PLAYER},
+	 * creation time and name override.
+	 */
+	static final byte STORAGE = 4;
+	/** contraption id, pipe block key */
+	static final byte BREAK = 5;
+	/** contraption id, requested span, applied span */
+	static final byte UPDATE = 6;
+	/** contraption id */
+	static final byte REMOVE = 7;
+	/** contraption id, owner flag and owner, repair index, repair rate, when the index was taken, updated tick */
+	static final byte STATE = 8;
+	/** contraption id, gadget key, max health, health, rate, last settled, credit index */
+	static final byte WEAR = 9;
+	/** contraption id, gadget key, resource, share of grid storage */
+	static final byte CHARGE = 10;
+
+	/** meta flags */
+	static final int META = 1;
+	static final int PLAYER = 2;
+	static final int RETRIEVABLE = 4;
+
+	/** string index standing in for null */
+	static final int NONE = 0;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private TraceFormat() {
+	}
+
+	/**
+	 * Writes a string of any length; {@link DataOutput#writeUTF(String)} stops at 64k,
+	 * which serialized item meta can exceed.
+	 */
+	static void writeString(DataOutput out, String value) throws IOException {
+		byte[] bytes = value.getBytes(UTF8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	static int readVarInt(DataInput in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.readByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+}
@@ -0,0 +1,216 @@
+package com.programmerdan.minecraft.contraptions.trace;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+
+import com.programmerdan.minecraft.contraptions.gadget.Wear;
+import com.programmerdan.minecraft.contraptions.graph.ContraptionGraph;
+import com.programmerdan.minecraft.contraptions.graph.PipeEdge;
+import com.programmerdan.minecraft.contraptions.grid.Resource;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+import com.programmerdan.minecraft.contraptions.util.AdvancedMeta;
+
+/**
+ * Reads a trace written by {@link TraceWriter}, rebuilding graphs through a
+ * {@link GadgetFactory} and handing each record to a {@link TraceVisitor}.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class TraceReader implements Closeable {
+	private final DataInputStream in;
+	private final GadgetFactory factory;
+	private final List<String> strings = new ArrayList<String>();
+	private final short version;
+
+	public TraceReader(File file, GadgetFactory factory) throws IOException {
+		this.factory = factory;
+		this.in = new DataInputStream(new BufferedInputStream(
+				new GZIPInputStream(new FileInputStream(file)), 65536));
+		if (in.readInt() != TraceFormat.MAGIC) {
+			in.close();
+			throw new IOException(file + " is not a Contraptions trace");
+		}
+		this.version = in.readShort();
+		if (version < TraceFormat.OLDEST || version > TraceFormat.VERSION) {
+			in.close();
+			throw new IOException(file + " is trace version " + version + ", expected "
+					+ TraceFormat.OLDEST + " to " + TraceFormat.VERSION);
+		}
+		strings.add(null);
+	}
+
+	/**
+	 * Reads every remaining record into <code>visitor</code>.
+	 * 
+	 * @return the number of records read, not counting strings.
+	 */
+	public long readAll(TraceVisitor visitor) throws IOException {
+		long count = 0;
+		while (true) {
+			int type;
+			try {
+				type = in.readByte();
+			} catch (EOFException e) {
+				return count;
+			}
+			switch (type) {
+			case TraceFormat.STRING:
+				int index = TraceFormat.readVarInt(in);
+				String value = TraceFormat.readString(in);
+				while (strings.size() <= index) {
+					strings.add(null);
+				}
+				strings.set(index, value);
+				continue;
+			case TraceFormat.TICK:
+				visitor.tick(in.readLong());
+				break;
+			case TraceFormat.GRAPH:
+				long contraption = in.readLong();
+				visitor.graph(contraption, readGraph());
+				break;
+			case TraceFormat.STORAGE:
+				readStorage(visitor);
+				break;
+			case TraceFormat.BREAK:
+				visitor.breakPipe(in.readLong(), in.readLong());
+				break;
+			case TraceFormat.UPDATE:
+				visitor.update(in.readLong(), in.readDouble(), in.readDouble());
+				break;
+			case TraceFormat.REMOVE:
+				visitor.remove(in.readLong());
+				break;
+			case TraceFormat.STATE:
+				long id = in.readLong();
+				UUID owner = in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+				double repairIndex = in.readDouble();
+				double repairRate = in.readDouble();
+				long repairSettled = in.readLong();
+				long updatedTick = version >= 4 ? in.readLong() : -1L;
+				visitor.state(id, owner, repairIndex, repairRate, repairSettled, updatedTick);
+				break;
+			case TraceFormat.WEAR:
+				long worn = in.readLong();
+				long key = in.readLong();
+				visitor.wear(worn, key, new Wear(in.readDouble(), in.readDouble(), in.readDouble(),
+						in.readLong(), in.readDouble()));
+				break;
+			case TraceFormat.CHARGE:
+				long charged = in.readLong();
+				long member = in.readLong();
+				Resource resource = Resource.valueOf(strings.get(TraceFormat.readVarInt(in)));
+				visitor.charge(charged, member, resource, in.readDouble());
+				break;
+			default:
+				throw new IOException("Unknown trace record type " + type + " after " + count + " records");
+			}
+			count++;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private ContraptionGraph readGraph() throws IOException {
+		ContraptionGraph graph = new ContraptionGraph();
+		int gadgets = TraceFormat.readVarInt(in);
+		for (int i = 0; i < gadgets; i++) {
+			long key = in.readLong();
+			String kind = strings.get(TraceFormat.readVarInt(in));
+			String material = strings.get(TraceFormat.readVarInt(in));
+			String spec = version >= 3 ? strings.get(TraceFormat.readVarInt(in)) : null;
+			try {
+				graph.addGadget(key, factory.create(kind, material == null ? null : Material.valueOf(material), spec, key));
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Can't rebuild " + kind + " at " + key + ": " + e.getMessage(), e);
+			}
+		}
+		int junctions = TraceFormat.readVarInt(in);
+		for (int i = 0; i < junctions; i++) {
+			graph.addJunction(in.readLong(), in.readDouble());
+		}
+		int edges = TraceFormat.readVarInt(in);
+		for (int i = 0; i < edges; i++) {
+			long a = in.readLong();
+			long b = in.readLong();
+			double capacity = in.readDouble();
+			long[] blocks = new long[TraceFormat.readVarInt(in)];
+			for (int j = 0; j < blocks.length; j++) {
+				blocks[j] = in.readLong();
+			}
+			graph.addEdge(new PipeEdge(a, b, capacity, blocks));
+		}
+		return graph;
+	}
+
+	private void readStorage(TraceVisitor visitor) throws IOException {
+		long contraption = in.readLong();
+		long key = in.readLong();
+		int count = TraceFormat.readVarInt(in);
+		List<AdvItemStack> stacks = new ArrayList<AdvItemStack>(count);
+		for (int i = 0; i < count; i++) {
+			String material = strings.get(TraceFormat.readVarInt(in));
+			short durability = in.readShort();
+			ItemStack type = readItem(strings.get(TraceFormat.readVarInt(in)));
+			AdvancedMeta meta = readMeta();
+			double size = in.readDouble();
+			if (type == null && material != null) {
+				type = new ItemStack(Material.valueOf(material), 1, durability);
+			}
+			stacks.add(new AdvItemStack(type, size, meta));
+		}
+		visitor.storage(contraption, key, stacks);
+	}
+
+	private AdvancedMeta readMeta() throws IOException {
+		int flags = in.readByte();
+		if ((flags & TraceFormat.META) == 0) {
+			return null;
+		}
+		UUID player = (flags & TraceFormat.PLAYER) != 0 ? new UUID(in.readLong(), in.readLong()) : null;
+		long creationTime = in.readLong();
+		String name = strings.get(TraceFormat.readVarInt(in));
+		return AdvancedMeta.of(player, creationTime, name, (flags & TraceFormat.RETRIEVABLE) != 0);
+	}
+
+	/**
+	 * @return the item serialized by the writer, meta and all; or null if there was none,
+	 *     or there is no server to deserialize meta with.
+	 */
+	private static ItemStack readItem(String yaml) throws IOException {
+		if (yaml == null || Bukkit.getServer() == null) {
+			return null;
+		}
+		YamlConfiguration config = new YamlConfiguration();
+		try {
+			config.loadFromString(yaml);
+		} catch (InvalidConfigurationException e) {
+			throw new IOException("Unreadable item meta in trace", e);
+		}
+		ItemStack item = config.getItemStack("item");
+		if (item == null) {
+			throw new IOException("Unreadable item meta in trace");
+		}
+		item.setAmount(1);
+		return item;
+	}
+}
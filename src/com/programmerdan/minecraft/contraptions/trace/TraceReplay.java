@@ -0,0 +1,227 @@
+package com.programmerdan.minecraft.contraptions.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import com.programmerdan.minecraft.contraptions.ContraptionsConfiguration;
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.gadget.Wear;
+import com.programmerdan.minecraft.contraptions.engine.ChunkTracker;
+import com.programmerdan.minecraft.contraptions.engine.ContraptionMonitor;
+import com.programmerdan.minecraft.contraptions.engine.FlowSolver;
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+import com.programmerdan.minecraft.contraptions.graph.ContraptionGraph;
+import com.programmerdan.minecraft.contraptions.grid.GridMember;
+import com.programmerdan.minecraft.contraptions.grid.Resource;
+import com.programmerdan.minecraft.contraptions.time.TimeMeasure;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+
+/**
+ * Replays a recorded trace through the engine, headlessly: graphs are rebuilt via a
+ * {@link GadgetFactory}, and every recorded update is solved again, in recorded order,
+ * by a {@link FlowSolver}. Reports how long solving took, and how many updates came out
+ * differently than they did when recorded.
+ * 
+ * Given a {@link ContraptionMonitor} instead, the recorded updates are only counted: the
+ * monitor is run on the trace's tick boundaries and decides for itself which
+ * Contraptions to update and over what span, as it would on a server, so schedulers
+ * can be compared against the real workload.
+ * 
+ * <code>java -cp Contraptions.jar:spigot-api.jar com.programmerdan.minecraft.contraptions.trace.TraceReplay &lt;trace&gt; &lt;GadgetFactory class&gt; [schedule]</code>
+ * <br>
+ * With <code>schedule</code>, a monitor with the default settings is driven.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class TraceReplay implements TraceVisitor {
+	private final GadgetFactory factory;
+	private final FlowSolver solver;
+	private final ContraptionMonitor monitor;
+	private final Map<Long, Contraption> contraptions = new HashMap<Long, Contraption>();
+
+	private long ticks;
+	private long tick;
+	private long recorded;
+	private long updates;
+	private long diverged;
+	private long[] latencies = new long[1024];
+
+	public TraceReplay(GadgetFactory factory, FlowSolver solver) {
+		this(factory, solver, null);
+	}
+
+	/**
+	 * @param monitor the monitor to drive, or null to replay the recorded updates
+	 */
+	public TraceReplay(GadgetFactory factory, FlowSolver solver, ContraptionMonitor monitor) {
+		this.factory = factory;
+		this.solver = solver;
+		this.monitor = monitor;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: TraceReplay <trace file> <GadgetFactory class> [schedule]");
+			System.exit(1);
+		}
+		GadgetFactory factory = (GadgetFactory) Class.forName(args[1]).newInstance();
+		FlowSolver solver = new FlowSolver();
+		ContraptionMonitor monitor = null;
+		if (args.length > 2 && "schedule".equals(args[2])) {
+			monitor = new ContraptionMonitor(new ContraptionsConfiguration().getMonitors(), solver,
+					new ChunkTracker(), Logger.getLogger("TraceReplay"));
+		}
+		TraceReplay replay = new TraceReplay(factory, solver, monitor);
+		long started = System.nanoTime();
+		replay.replay(new File(args[0]));
+		long elapsed = System.nanoTime() - started;
+		System.out.println(replay.report());
+		System.out.println(String.format("Wall time %.1f ms", elapsed / 1e6));
+	}
+
+	public void replay(File trace) throws IOException {
+		TraceReader reader = new TraceReader(trace, factory);
+		try {
+			reader.readAll(this);
+		} finally {
+			reader.close();
+		}
+	}
+
+	public String report() {
+		if (monitor != null) {
+			return String.format("%d ticks, %d updates recorded over %d contraptions; "
+					+ "scheduler ran %d updates, solve total %.1f ms",
+					ticks, recorded, contraptions.size(), monitor.getUpdates(), monitor.getUpdateNanos() / 1e6);
+		}
+		long[] sorted = Arrays.copyOf(latencies, (int) Math.min(updates, latencies.length));
+		Arrays.sort(sorted);
+		long total = 0;
+		for (long latency : sorted) {
+			total += latency;
+		}
+		return String.format("%d ticks, %d updates over %d contraptions, %d diverged; "
+				+ "solve total %.1f ms, p50 %.1f us, p99 %.1f us, max %.1f us",
+				ticks, updates, contraptions.size(), diverged, total / 1e6,
+				percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.99) / 1e3,
+				(sorted.length == 0 ? 0 : sorted[sorted.length - 1]) / 1e3);
+	}
+
+	public long getDiverged() {
+		return diverged;
+	}
+
+	@Override
+	public void tick(long tick) {
+		ticks++;
+		this.tick = tick;
+		if (monitor != null && tick % monitor.getPeriod() == 0L) {
+			monitor.runAt(tick);
+		}
+	}
+
+	@Override
+	public void graph(long id, ContraptionGraph graph) {
+		Contraption contraption = contraptions.get(id);
+		if (contraption == null) {
+			contraption = new Contraption(id, graph, 0L);
+			contraptions.put(id, contraption);
+			if (monitor != null) {
+				monitor.assign(contraption, tick);
+			}
+		} else {
+			contraption.setGraph(graph, 0L);
+		}
+	}
+
+	@Override
+	public void storage(long id, long key, List<AdvItemStack> stacks) {
+		GadgetBase gadget = gadget(id, key);
+		if (gadget != null) {
+			factory.restoreStorage(gadget, stacks);
+		}
+	}
+
+	@Override
+	public void breakPipe(long id, long block) {
+		Contraption contraption = contraptions.get(id);
+		if (contraption != null) {
+			contraption.breakPipe(block);
+		}
+	}
+
+	@Override
+	public void update(long id, double requested, double applied) {
+		recorded++;
+		Contraption contraption = contraptions.get(id);
+		if (contraption == null || monitor != null) {
+			return;
+		}
+		long started = System.nanoTime();
+		TimeMeasure result = solver.solve(contraption.getGraph(), new TimeMeasure(requested));
+		long latency = System.nanoTime() - started;
+		if (updates == latencies.length && latencies.length < (1 << 24)) {
+			latencies = Arrays.copyOf(latencies, latencies.length << 1);
+		}
+		if (updates < latencies.length) {
+			latencies[(int) updates] = latency;
+		}
+		updates++;
+		if (Math.abs(result.getLength() - applied) > 1e-9) {
+			diverged++;
+		}
+	}
+
+	@Override
+	public void remove(long id) {
+		Contraption contraption = contraptions.remove(id);
+		if (contraption != null && monitor != null) {
+			monitor.unassign(contraption);
+		}
+	}
+
+	@Override
+	public void state(long id, UUID owner, double repairIndex, double repairRate, long repairSettled,
+			long updatedTick) {
+		Contraption contraption = contraptions.get(id);
+		if (contraption != null) {
+			contraption.setOwner(owner);
+			contraption.restoreRepair(repairIndex, repairRate, repairSettled);
+		}
+	}
+
+	@Override
+	public void wear(long id, long key, Wear wear) {
+		GadgetBase gadget = gadget(id, key);
+		if (gadget != null) {
+			gadget.setWear(wear);
+		}
+	}
+
+	@Override
+	public void charge(long id, long key, Resource resource, double stored) {
+		GadgetBase gadget = gadget(id, key);
+		if (gadget instanceof GridMember) {
+			((GridMember) gadget).setGridStored(resource, stored);
+		}
+	}
+
+	private GadgetBase gadget(long id, long key) {
+		Contraption contraption = contraptions.get(id);
+		return contraption == null ? null : contraption.getGraph().getGadget(key);
+	}
+
+	private static double percentile(long[] sorted, double fraction) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[(int) Math.min(sorted.length - 1, Math.floor(sorted.length * fraction))];
+	}
+}
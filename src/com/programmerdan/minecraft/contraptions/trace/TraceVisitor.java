@@ -0,0 +1,48 @@
+package com.programmerdan.minecraft.contraptions.trace;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.programmerdan.minecraft.contraptions.gadget.Wear;
+import com.programmerdan.minecraft.contraptions.graph.ContraptionGraph;
+import com.programmerdan.minecraft.contraptions.grid.Resource;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+
+/**
+ * Receives the records of a trace, in order, from {@link TraceReader}.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public interface TraceVisitor {
+	public void tick(long tick);
+
+	public void graph(long contraption, ContraptionGraph graph);
+
+	public void storage(long contraption, long key, List<AdvItemStack> stacks);
+
+	public void breakPipe(long contraption, long block);
+
+	public void update(long contraption, double requested, double applied);
+
+	public void remove(long contraption);
+
+	/**
+	 * @param owner the player the Contraption counts against, or null
+	 * @param repairIndex its repair index as of <code>repairSettled</code>
+	 * @param repairRate Repair per millisecond
+	 * @param updatedTick the tick its storage was last brought up to; -1 if never, or not recorded
+	 */
+	public void state(long contraption, UUID owner, double repairIndex, double repairRate, long repairSettled,
+			long updatedTick);
+
+	/**
+	 * @param wear the Gadget's wear, as last settled
+	 */
+	public void wear(long contraption, long key, Wear wear);
+
+	/**
+	 * @param stored the Gadget's share of its grid's storage of <code>resource</code>
+	 */
+	public void charge(long contraption, long key, Resource resource, double stored);
+}
@@ -0,0 +1,413 @@
+package com.programmerdan.minecraft.contraptions.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+
+import com.programmerdan.minecraft.contraptions.gadget.GadgetBase;
+import com.programmerdan.minecraft.contraptions.gadget.Wear;
+import com.programmerdan.minecraft.contraptions.graph.Contraption;
+import com.programmerdan.minecraft.contraptions.graph.ContraptionGraph;
+import com.programmerdan.minecraft.contraptions.graph.PipeEdge;
+import com.programmerdan.minecraft.contraptions.grid.GridMember;
+import com.programmerdan.minecraft.contraptions.grid.Resource;
+import com.programmerdan.minecraft.contraptions.grid.ResourceGrid;
+import com.programmerdan.minecraft.contraptions.time.TimeMeasure;
+import com.programmerdan.minecraft.contraptions.util.AdvItemStack;
+import com.programmerdan.minecraft.contraptions.util.AdvancedMeta;
+
+/**
+ * Records the inputs of the Contraption engine to a trace file: graph topology,
+ * storage snapshots, Pipe breaks, updates, and tick boundaries. See {@link TraceFormat}.
+ * Contraption and Gadget state beyond storage (owner, repair, wear, grid charge) is
+ * recorded with each snapshot, so checkpoints can be written in the same format.
+ * 
+ * At most one trace records at a time; engine hooks look it up via {@link #current()}
+ * and do nothing when it is null, so an idle recorder costs a volatile read.
+ * 
+ * Writes are synchronized, as monitors record from their own threads. A failed write
+ * stops the recording rather than the engine. A monitor may still hold the trace as it
+ * is stopped; once closed, its writes are dropped.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class TraceWriter implements Closeable {
+	private static volatile TraceWriter current;
+
+	private final DataOutputStream out;
+	private final Map<String, Integer> strings = new HashMap<String, Integer>();
+	private final File file;
+	private long records;
+	private IOException failure;
+	private boolean closed;
+
+	public TraceWriter(File file) throws IOException {
+		this.file = file;
+		this.out = new DataOutputStream(new BufferedOutputStream(
+				new GZIPOutputStream(new FileOutputStream(file)), 65536));
+		out.writeInt(TraceFormat.MAGIC);
+		out.writeShort(TraceFormat.VERSION);
+	}
+
+	/**
+	 * @return the trace currently recording, or null.
+	 */
+	public static TraceWriter current() {
+		return current;
+	}
+
+	/**
+	 * Makes <code>writer</code> the recording trace. Pass null to stop recording; the
+	 * previous trace, if any, is returned but not closed.
+	 */
+	public static TraceWriter setCurrent(TraceWriter writer) {
+		TraceWriter previous = current;
+		current = writer;
+		return previous;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public synchronized long getRecords() {
+		return records;
+	}
+
+	public synchronized void tick(long tick) {
+		if (closed) {
+			return;
+		}
+		try {
+			out.writeByte(TraceFormat.TICK);
+			out.writeLong(tick);
+			records++;
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Records a Contraption entering the engine, or its graph changing wholesale: its
+	 * full topology, then a snapshot of each Gadget and of the Contraption's own state.
+	 * The caller holds the Contraption's lock.
+	 */
+	public synchronized void contraption(Contraption contraption) {
+		if (closed) {
+			return;
+		}
+		try {
+			ContraptionGraph graph = contraption.getGraph();
+			Map<Long, GadgetBase> gadgets = graph.getGadgets();
+			for (GadgetBase gadget : gadgets.values()) {
+				string(gadget.getClass().getName());
+				string(gadget.getType() == null ? null : gadget.getType().name());
+				string(gadget.getSpec());
+			}
+
+			out.writeByte(TraceFormat.GRAPH);
+			out.writeLong(contraption.getId());
+			TraceFormat.writeVarInt(out, gadgets.size());
+			for (Map.Entry<Long, GadgetBase> entry : gadgets.entrySet()) {
+				GadgetBase gadget = entry.getValue();
+				out.writeLong(entry.getKey());
+				TraceFormat.writeVarInt(out, string(gadget.getClass().getName()));
+				TraceFormat.writeVarInt(out, string(gadget.getType() == null ? null : gadget.getType().name()));
+				TraceFormat.writeVarInt(out, string(gadget.getSpec()));
+			}
+			TraceFormat.writeVarInt(out, graph.getJunctions().size());
+			for (Long junction : graph.getJunctions()) {
+				out.writeLong(junction);
+				out.writeDouble(graph.getJunctionCapacity(junction));
+			}
+			TraceFormat.writeVarInt(out, graph.getEdges().size());
+			for (PipeEdge edge : graph.getEdges()) {
+				out.writeLong(edge.getEndA());
+				out.writeLong(edge.getEndB());
+				out.writeDouble(edge.getCapacity());
+				long[] blocks = edge.getBlocks();
+				TraceFormat.writeVarInt(out, blocks.length);
+				for (long block : blocks) {
+					out.writeLong(block);
+				}
+			}
+			records++;
+
+			for (Map.Entry<Long, GadgetBase> entry : gadgets.entrySet()) {
+				gadget(contraption, entry.getKey(), entry.getValue());
+			}
+			state(contraption);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Records everything about one Gadget the graph doesn't: its storage, wear, and share
+	 * of any grid's storage. The caller holds the Contraption's lock.
+	 */
+	public synchronized void gadget(Contraption contraption, long key, GadgetBase gadget) {
+		if (gadget.hasStorage()) {
+			storage(contraption, key, gadget.getStorage());
+		}
+		if (gadget.getWear() != null) {
+			wear(contraption, key, gadget.getWear());
+		}
+		if (gadget instanceof GridMember) {
+			charge(contraption, key, (GridMember) gadget);
+		}
+	}
+
+	/**
+	 * Records a Contraption's owner and repair state. The caller holds its lock.
+	 */
+	public synchronized void state(Contraption contraption) {
+		if (closed) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		try {
+			out.writeByte(TraceFormat.STATE);
+			out.writeLong(contraption.getId());
+			UUID owner = contraption.getOwner();
+			out.writeBoolean(owner != null);
+			if (owner != null) {
+				out.writeLong(owner.getMostSignificantBits());
+				out.writeLong(owner.getLeastSignificantBits());
+			}
+			out.writeDouble(contraption.getRepairIndex(now));
+			out.writeDouble(contraption.getRepairRate());
+			out.writeLong(now);
+			out.writeLong(contraption.getUpdatedTick());
+			records++;
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	private void wear(Contraption contraption, long key, Wear wear) {
+		if (closed) {
+			return;
+		}
+		try {
+			synchronized (wear) {
+				out.writeByte(TraceFormat.WEAR);
+				out.writeLong(contraption.getId());
+				out.writeLong(key);
+				out.writeDouble(wear.getMaxHealth());
+				out.writeDouble(wear.getSettledHealth());
+				out.writeDouble(wear.getRate());
+				out.writeLong(wear.getSettled());
+				out.writeDouble(wear.getCreditIndex());
+			}
+			records++;
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Records the member's share of each grid it is in, as it would get back were the
+	 * grid dissolved now; or what it holds itself, if no grid is formed.
+	 */
+	private void charge(Contraption contraption, long key, GridMember member) {
+		if (closed) {
+			return;
+		}
+		try {
+			for (Resource resource : Resource.values()) {
+				if (!member.isGridMember(resource)) {
+					continue;
+				}
+				ResourceGrid grid = member.getGrid(resource);
+				double stored = grid == null ? member.getGridStored(resource) : grid.getShare(member);
+				int name = string(resource.name());
+				out.writeByte(TraceFormat.CHARGE);
+				out.writeLong(contraption.getId());
+				out.writeLong(key);
+				TraceFormat.writeVarInt(out, name);
+				out.writeDouble(stored);
+				records++;
+			}
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Records the contents of a Gadget's storage, e.g. after a player edited it. Stacks of
+	 * the same item and meta are recorded as one; item meta is kept when there is a server
+	 * to serialize it.
+	 */
+	public synchronized void storage(Contraption contraption, long key, List<AdvItemStack> stacks) {
+		if (closed) {
+			return;
+		}
+		List<AdvItemStack> merged = AdvItemStack.merge(stacks);
+		try {
+			int[] materials = new int[merged.size()];
+			int[] items = new int[merged.size()];
+			int[] names = new int[merged.size()];
+			for (int i = 0; i < merged.size(); i++) {
+				AdvItemStack stack = merged.get(i);
+				materials[i] = string(stack.getType() == null ? null : stack.getType().getType().name());
+				items[i] = string(itemMeta(stack.getType()));
+				names[i] = string(stack.getMeta() == null ? null : stack.getMeta().getNameOverride());
+			}
+			out.writeByte(TraceFormat.STORAGE);
+			out.writeLong(contraption.getId());
+			out.writeLong(key);
+			TraceFormat.writeVarInt(out, merged.size());
+			for (int i = 0; i < merged.size(); i++) {
+				AdvItemStack stack = merged.get(i);
+				TraceFormat.writeVarInt(out, materials[i]);
+				out.writeShort(stack.getType() == null ? 0 : stack.getType().getDurability());
+				TraceFormat.writeVarInt(out, items[i]);
+				writeMeta(stack.getMeta(), names[i]);
+				out.writeDouble(stack.getSize());
+			}
+			records++;
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	private void writeMeta(AdvancedMeta meta, int name) throws IOException {
+		if (meta == null) {
+			out.writeByte(0);
+			return;
+		}
+		UUID player = meta.getPlayer();
+		out.writeByte(TraceFormat.META | (player != null ? TraceFormat.PLAYER : 0)
+				| (meta.getRetrievable() ? TraceFormat.RETRIEVABLE : 0));
+		if (player != null) {
+			out.writeLong(player.getMostSignificantBits());
+			out.writeLong(player.getLeastSignificantBits());
+		}
+		out.writeLong(meta.getCreationTime());
+		TraceFormat.writeVarInt(out, name);
+	}
+
+	/**
+	 * @return the item, meta and all, as YAML; or null if it has no meta, or there is no
+	 *     server to serialize meta with.
+	 */
+	private static String itemMeta(ItemStack item) {
+		if (item == null || Bukkit.getServer() == null || !item.hasItemMeta()) {
+			return null;
+		}
+		YamlConfiguration yaml = new YamlConfiguration();
+		yaml.set("item", item);
+		return yaml.saveToString();
+	}
+
+	public synchronized void breakPipe(Contraption contraption, long block) {
+		if (closed) {
+			return;
+		}
+		try {
+			out.writeByte(TraceFormat.BREAK);
+			out.writeLong(contraption.getId());
+			out.writeLong(block);
+			records++;
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Records one engine update of a Contraption; the applied span lets a replay check
+	 * it reached the same result.
+	 */
+	public synchronized void update(Contraption contraption, TimeMeasure requested, TimeMeasure applied) {
+		if (closed) {
+			return;
+		}
+		try {
+			out.writeByte(TraceFormat.UPDATE);
+			out.writeLong(contraption.getId());
+			out.writeDouble(requested.getLength());
+			out.writeDouble(applied.getLength());
+			records++;
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	public synchronized void remove(Contraption contraption) {
+		remove(contraption.getId());
+	}
+
+	public synchronized void remove(long id) {
+		if (closed) {
+			return;
+		}
+		try {
+			out.writeByte(TraceFormat.REMOVE);
+			out.writeLong(id);
+			records++;
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Stops recording and closes the file. Safe to call more than once; hooks still
+	 * holding this trace afterwards write nothing.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (current == this) {
+			current = null;
+		}
+		if (closed) {
+			return;
+		}
+		closed = true;
+		out.close();
+	}
+
+	private int string(String value) throws IOException {
+		if (value == null) {
+			return TraceFormat.NONE;
+		}
+		Integer index = strings.get(value);
+		if (index == null) {
+			index = strings.size() + 1;
+			strings.put(value, index);
+			out.writeByte(TraceFormat.STRING);
+			TraceFormat.writeVarInt(out, index);
+			TraceFormat.writeString(out, value);
+		}
+		return index;
+	}
+
+	/**
+	 * @return the write error that stopped this recording, or null.
+	 */
+	public synchronized IOException getFailure() {
+		return failure;
+	}
+
+	private void fail(IOException e) {
+		if (failure == null) {
+			failure = e;
+		}
+		if (current == this) {
+			current = null;
+		}
+	}
+}
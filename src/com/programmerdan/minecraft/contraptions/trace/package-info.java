@@ -0,0 +1,9 @@
+/**
+ * Recording what drives the Contraption engine to a compact trace file, and replaying
+ * such a trace headlessly, without a server, for profiling and for comparing engine
+ * versions against a real workload.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+package com.programmerdan.minecraft.contraptions.trace;
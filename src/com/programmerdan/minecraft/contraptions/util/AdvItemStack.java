@@ -1,8 +1,11 @@
 package com.programmerdan.minecraft.contraptions.util;
 
+import org.bukkit.Bukkit;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -41,7 +44,103 @@ public class AdvItemStack implements Cloneable, ConfigurationSerializable{
 	
 	@Override
 	public AdvItemStack clone() {
-		return new AdvItemStack(this.type, this.size, (AdvancedMeta) this.meta.clone());
+		// metas are immutable and shared; no need to copy.
+		return new AdvItemStack(this.type, this.size, this.meta);
+	}
+	
+	/**
+	 * Checks if this stack and <code>other</code> are the same item with the same meta, and
+	 * so can be held as a single stack.
+	 * 
+	 * @param other the stack to compare with
+	 * @return true if the two could be merged.
+	 */
+	public boolean canMerge(AdvItemStack other) {
+		if (this.meta != other.meta) {
+			return false;
+		}
+		if (this.type == null || other.type == null) {
+			return this.type == other.type;
+		}
+		return sameItem(this.type, other.type);
+	}
+	
+	/**
+	 * Merges stacks of the same item and meta, summing their sizes. Order of first
+	 * appearance is kept; the stacks given are not changed.
+	 * 
+	 * @param stacks the stacks to merge
+	 * @return a new list with one stack per distinct item and meta.
+	 */
+	public static List<AdvItemStack> merge(List<AdvItemStack> stacks) {
+		List<AdvItemStack> merged = new ArrayList<AdvItemStack>(stacks.size());
+		outer:
+		for (AdvItemStack stack : stacks) {
+			for (AdvItemStack existing : merged) {
+				if (existing.canMerge(stack)) {
+					existing.size += stack.size;
+					continue outer;
+				}
+			}
+			merged.add(stack.clone());
+		}
+		return merged;
+	}
+	
+	/**
+	 * Works out what changed between two sets of stacks, per item and meta: positive sizes
+	 * for what <code>after</code> holds more of, negative for less. Kinds that didn't change
+	 * are left out; neither list is changed.
+	 * 
+	 * @param after the stacks now
+	 * @param before the stacks before
+	 * @return a new list with one stack per changed item and meta.
+	 */
+	public static List<AdvItemStack> difference(List<AdvItemStack> after, List<AdvItemStack> before) {
+		List<AdvItemStack> change = merge(after);
+		outer:
+		for (AdvItemStack stack : before) {
+			for (AdvItemStack existing : change) {
+				if (existing.canMerge(stack)) {
+					existing.size -= stack.size;
+					continue outer;
+				}
+			}
+			AdvItemStack taken = stack.clone();
+			taken.size = -taken.size;
+			change.add(taken);
+		}
+		for (Iterator<AdvItemStack> it = change.iterator(); it.hasNext();) {
+			if (it.next().size == 0.0d) {
+				it.remove();
+			}
+		}
+		return change;
+	}
+	
+	/**
+	 * Checks if this stack can fill a request for <code>wanted</code>. A wanted stack with
+	 * no type is a wildcard, and accepts any item.
+	 * 
+	 * @param wanted the requested item
+	 * @return true if this stack is of a kind <code>wanted</code> accepts.
+	 */
+	public boolean satisfies(AdvItemStack wanted) {
+		if (wanted.getType() == null) {
+			return true;
+		}
+		if (this.type == null) {
+			return false;
+		}
+		return sameItem(this.type, wanted.getType());
+	}
+	
+	private static boolean sameItem(ItemStack a, ItemStack b) {
+		if (Bukkit.getServer() == null) {
+			// headless, e.g. trace replay; there is no item factory to compare meta with.
+			return a.getType() == b.getType() && a.getDurability() == b.getDurability();
+		}
+		return a.isSimilar(b);
 	}
 	
 	/**
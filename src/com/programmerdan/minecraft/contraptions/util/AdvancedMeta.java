@@ -1,7 +1,10 @@
 package com.programmerdan.minecraft.contraptions.util;
 
+import java.lang.ref.WeakReference;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
 
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.inventory.ItemStack;
@@ -9,29 +12,85 @@ import org.bukkit.inventory.meta.ItemMeta;
 
 /**
  * Container for metadata that is associated with the items.
- * 
+ *
  * For example, which player introduced the items to the contraption,
  * the time it was placed, special naming overrides, etc.
- * 
+ *
+ * Immutable and interned: metas with the same player, name override and retrievability
+ * are always the same instance, so stacks can be compared and merged by identity, and a
+ * storage full of items from one player holds a single meta between them. Creation time
+ * is data, not identity: items arriving later share the meta already in use, and with it
+ * its creation time, so a merged stack keeps the oldest. Creation time is only kept to
+ * the {@link #CREATION_BUCKET}, and the player's UUID as two longs.
+ *
  * @author ProgrammerDan
  * @since 1.0.0 October 2015
  */
-public class AdvancedMeta implements Cloneable, ConfigurationSerializable {
-	private String playerUUID;
-	private long creationTime;
-	private String nameOverride;
-	private boolean retrievable;
-	
-	public AdvancedMeta() {
-		playerUUID = null;
-		creationTime = System.currentTimeMillis();
-		nameOverride = null;
-		retrievable = true;
-	}
-	
+public final class AdvancedMeta implements Cloneable, ConfigurationSerializable {
+	/**
+	 * Creation times are rounded down to this many milliseconds; an hour.
+	 */
+	public static final long CREATION_BUCKET = 3600000L;
+
+	private static final Map<AdvancedMeta, WeakReference<AdvancedMeta>> interned =
+			new WeakHashMap<AdvancedMeta, WeakReference<AdvancedMeta>>();
+
+	private final boolean hasPlayer;
+	private final long playerMost;
+	private final long playerLeast;
+	private final long creationTime;
+	private final String nameOverride;
+	private final boolean retrievable;
+	private final int hash;
+
+	private AdvancedMeta(UUID player, long creationTime, String nameOverride, boolean retrievable) {
+		this.hasPlayer = player != null;
+		this.playerMost = player == null ? 0L : player.getMostSignificantBits();
+		this.playerLeast = player == null ? 0L : player.getLeastSignificantBits();
+		this.creationTime = creationTime - (creationTime % CREATION_BUCKET);
+		this.nameOverride = nameOverride;
+		this.retrievable = retrievable;
+		int h = hasPlayer ? (int) (playerMost ^ (playerMost >>> 32) ^ playerLeast ^ (playerLeast >>> 32)) : 0;
+		h = 31 * h + (nameOverride == null ? 0 : nameOverride.hashCode());
+		this.hash = 31 * h + (retrievable ? 1 : 0);
+	}
+
+	/**
+	 * Gets the shared meta for these values.
+	 *
+	 * @param player the player who introduced the items, or null
+	 * @param creationTime when, in milliseconds; rounded down to the {@link #CREATION_BUCKET}.
+	 *     Only kept if no meta for the same player, name and retrievability is in use.
+	 * @param nameOverride display name to apply, or null
+	 * @param retrievable whether players may take the items back out
+	 * @return the canonical instance.
+	 */
+	public static AdvancedMeta of(UUID player, long creationTime, String nameOverride, boolean retrievable) {
+		return intern(new AdvancedMeta(player, creationTime, nameOverride, retrievable));
+	}
+
+	/**
+	 * As {@link #of(UUID, long, String, boolean)}, created now, retrievable, with no player.
+	 */
+	public static AdvancedMeta named(String nameOverride) {
+		return of(null, System.currentTimeMillis(), nameOverride, true);
+	}
+
+	private static AdvancedMeta intern(AdvancedMeta meta) {
+		synchronized (interned) {
+			WeakReference<AdvancedMeta> ref = interned.get(meta);
+			AdvancedMeta existing = ref == null ? null : ref.get();
+			if (existing != null) {
+				return existing;
+			}
+			interned.put(meta, new WeakReference<AdvancedMeta>(meta));
+			return meta;
+		}
+	}
+
 	/**
 	 * Internal method, applies this meta to the underlying ItemStack.
-	 * 
+	 *
 	 * @return an ItemStack with this meta applied.
 	 */
 	protected ItemStack apply(ItemStack is) {
@@ -42,89 +101,110 @@ public class AdvancedMeta implements Cloneable, ConfigurationSerializable {
 		}
 		return is;
 	}
-	
+
+	public UUID getPlayer() {
+		return hasPlayer ? new UUID(playerMost, playerLeast) : null;
+	}
+
 	public String getPlayerUUID() {
-		return playerUUID;
+		return hasPlayer ? getPlayer().toString() : null;
 	}
-	
-	public void setPlayerUUID(String playerUUID) {
-		this.playerUUID = playerUUID;
+
+	public AdvancedMeta withPlayer(UUID player) {
+		return of(player, creationTime, nameOverride, retrievable);
 	}
-	
+
+	/**
+	 * @return when the first items to share this meta were introduced, rounded down to
+	 *     the {@link #CREATION_BUCKET}.
+	 */
 	public long getCreationTime() {
 		return creationTime;
 	}
-	
-	public void setCreationTime(long creationTime) {
-		this.creationTime = creationTime;
-	}
-	
+
 	public String getNameOverride() {
 		return nameOverride;
 	}
-	
-	public void setNameOverride(String nameOverride) {
-		this.nameOverride = nameOverride;
+
+	public AdvancedMeta withNameOverride(String nameOverride) {
+		return of(getPlayer(), creationTime, nameOverride, retrievable);
 	}
-	
+
 	public boolean getRetrievable() {
 		return retrievable;
 	}
-	
-	public void setRetrievable(boolean retrievable) {
-		this.retrievable = retrievable;
+
+	public AdvancedMeta withRetrievable(boolean retrievable) {
+		return of(getPlayer(), creationTime, nameOverride, retrievable);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof AdvancedMeta)) {
+			return false;
+		}
+		AdvancedMeta other = (AdvancedMeta) o;
+		return hash == other.hash && hasPlayer == other.hasPlayer && playerMost == other.playerMost
+				&& playerLeast == other.playerLeast && retrievable == other.retrievable
+				&& (nameOverride == null ? other.nameOverride == null : nameOverride.equals(other.nameOverride));
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
 	}
 
 	@Override
 	public Map<String, Object> serialize() {
 		Map<String, Object> result = new LinkedHashMap<String, Object>();
-		
+
 		if (getPlayerUUID() != null) {
 			result.put("playerUUID", getPlayerUUID());
 		}
-		
+
 		if (getNameOverride() != null) {
 			result.put("nameOverride", getNameOverride());
 		}
-		
+
 		result.put("creationTime", getCreationTime());
-		
+
 		result.put("retrievable", getRetrievable());
-		
+
 		return result;
 	}
-	
+
 	public static AdvancedMeta deserialize(Map<String, Object> serial) {
-		AdvancedMeta result = new AdvancedMeta();
-		
+		UUID player = null;
 		if (serial.containsKey("playerUUID")) {
-			result.setPlayerUUID((String)serial.get("playerUUID"));
+			player = UUID.fromString((String) serial.get("playerUUID"));
 		}
-		
+
+		String nameOverride = null;
 		if (serial.containsKey("nameOverride")) {
-			result.setNameOverride((String)serial.get("nameOverride"));
+			nameOverride = (String) serial.get("nameOverride");
 		}
-		
+
+		long creationTime = System.currentTimeMillis();
 		if (serial.containsKey("creationTime")) {
-			result.setCreationTime( ( (Number) serial.get("creationTime")).longValue());
+			creationTime = ( (Number) serial.get("creationTime")).longValue();
 		}
-		
+
+		boolean retrievable = true;
 		if (serial.containsKey("retrievable")) {
-			result.setRetrievable( (Boolean) serial.get("retrievable"));
+			retrievable = (Boolean) serial.get("retrievable");
 		}
-		
-		return result;
+
+		return of(player, creationTime, nameOverride, retrievable);
 	}
-	
+
+	/**
+	 * Metas are immutable; this is the same instance.
+	 */
 	@Override
 	public Object clone() {
-		AdvancedMeta cl = new AdvancedMeta();
-		
-		cl.setCreationTime(this.getCreationTime());
-		cl.setNameOverride(this.getNameOverride());
-		cl.setPlayerUUID(this.getPlayerUUID());
-		cl.setRetrievable(this.getRetrievable());
-		
-		return cl;
+		return this;
 	}
 }
@@ -0,0 +1,52 @@
+package com.programmerdan.minecraft.contraptions.util;
+
+/**
+ * Rough sizes of common JVM structures, for estimating the heap a Contraption retains.
+ * Assumes a 64 bit JVM without compressed references. Estimates are for comparing
+ * Contraptions and enforcing caps, not exact accounting.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public final class Footprint {
+	/**
+	 * An object header.
+	 */
+	public static final long OBJECT = 16L;
+	public static final long REFERENCE = 8L;
+	/**
+	 * A hash map entry, with its share of the table and a boxed key.
+	 */
+	public static final long MAP_ENTRY = 64L;
+	/**
+	 * An ItemStack with no meta.
+	 */
+	public static final long ITEM_STACK = 48L;
+
+	private Footprint() {
+	}
+
+	/**
+	 * @return an array of <code>length</code> elements of <code>element</code> bytes each.
+	 */
+	public static long array(int length, long element) {
+		return OBJECT + 8L + length * element;
+	}
+
+	/**
+	 * @return <code>bytes</code> in the largest unit that keeps it above 1, e.g. 12.5 KiB.
+	 */
+	public static String format(long bytes) {
+		if (bytes < 1024L) {
+			return bytes + " B";
+		}
+		String[] units = {"KiB", "MiB", "GiB", "TiB"};
+		double value = bytes;
+		int unit = -1;
+		while (value >= 1024.0d && unit < units.length - 1) {
+			value /= 1024.0d;
+			unit++;
+		}
+		return String.format("%.1f %s", value, units[unit]);
+	}
+}
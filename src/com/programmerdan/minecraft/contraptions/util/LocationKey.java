@@ -0,0 +1,58 @@
+package com.programmerdan.minecraft.contraptions.util;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+
+/**
+ * Packs block coordinates into a single primitive long, so that per-block lookups
+ * can be keyed without allocating Location objects. World is not part of the key;
+ * callers keep one keyspace per world.
+ * 
+ * Layout is 26 bits of X, 26 bits of Z and 12 bits of Y, all signed.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public final class LocationKey {
+	private static final long XZ_MASK = 0x3FFFFFFL;
+	private static final long Y_MASK = 0xFFFL;
+
+	private LocationKey() {
+	}
+
+	public static long of(int x, int y, int z) {
+		return ((x & XZ_MASK) << 38) | ((z & XZ_MASK) << 12) | (y & Y_MASK);
+	}
+
+	public static long of(Location location) {
+		return of(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+
+	public static long of(Block block) {
+		return of(block.getX(), block.getY(), block.getZ());
+	}
+
+	public static int x(long key) {
+		return (int) (key >> 38);
+	}
+
+	public static int y(long key) {
+		return (int) ((key << 52) >> 52);
+	}
+
+	public static int z(long key) {
+		return (int) ((key << 26) >> 38);
+	}
+
+	/**
+	 * Gets the key of the block adjacent to <code>key</code> across the given face.
+	 * 
+	 * @param key the packed origin block
+	 * @param face the face to step across
+	 * @return the packed neighbor block
+	 */
+	public static long relative(long key, BlockFace face) {
+		return of(x(key) + face.getModX(), y(key) + face.getModY(), z(key) + face.getModZ());
+	}
+}
@@ -0,0 +1,143 @@
+package com.programmerdan.minecraft.contraptions.util;
+
+import java.util.Arrays;
+
+/**
+ * Minimal open-addressing hash map from primitive long to primitive int. Exists so
+ * that hot per-block lookups (see {@link LocationKey}) don't box a Long and an Integer
+ * on every access.
+ * 
+ * Not thread safe; callers synchronize as needed.
+ * 
+ * @author ProgrammerDan
+ * @since 1.0.0 October 2015
+ */
+public class LongIntHashMap {
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private long[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size;
+	private int mask;
+
+	public LongIntHashMap() {
+		this(16);
+	}
+
+	public LongIntHashMap(int expected) {
+		allocate(tableSizeFor(expected));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(long key) {
+		return used[find(key)];
+	}
+
+	/**
+	 * @param key the key to find
+	 * @param missing value to return if the key isn't present
+	 * @return the mapped value, or <code>missing</code>
+	 */
+	public int get(long key, int missing) {
+		int slot = find(key);
+		return used[slot] ? values[slot] : missing;
+	}
+
+	public void put(long key, int value) {
+		int slot = find(key);
+		if (used[slot]) {
+			values[slot] = value;
+			return;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		used[slot] = true;
+		if (++size > (mask + 1) * LOAD_FACTOR) {
+			rehash(keys.length << 1);
+		}
+	}
+
+	/**
+	 * @param key the key to remove
+	 * @return true if the key was present
+	 */
+	public boolean remove(long key) {
+		int slot = find(key);
+		if (!used[slot]) {
+			return false;
+		}
+		used[slot] = false;
+		size--;
+		// backward shift so later probes in the run remain reachable.
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (used[next]) {
+			int home = mix(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				used[gap] = true;
+				used[next] = false;
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		return true;
+	}
+
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	private int find(long key) {
+		int slot = mix(key) & mask;
+		while (used[slot] && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash(int newLength) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(newLength);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				int slot = find(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+				used[slot] = true;
+			}
+		}
+	}
+
+	private void allocate(int length) {
+		keys = new long[length];
+		values = new int[length];
+		used = new boolean[length];
+		mask = length - 1;
+	}
+
+	private static int tableSizeFor(int expected) {
+		int length = 16;
+		while (length * LOAD_FACTOR < expected) {
+			length <<= 1;
+		}
+		return length;
+	}
+
+	private static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}